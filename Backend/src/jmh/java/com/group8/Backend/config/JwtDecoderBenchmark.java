@@ -0,0 +1,86 @@
+package com.group8.Backend.config;
+
+import com.group8.Backend.repository.InvalidatedTokenRepository;
+import com.group8.Backend.service.AuthenticationService;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CustomJwtDecoder.decode on a valid token, as run for every authenticated request:
+ * introspection through AuthenticationService, then the Nimbus decoder.
+ * The revocation lookup is a stand-in that never finds the token.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtDecoderBenchmark {
+    // 64 bytes, the minimum for HS512
+    static final String SIGNER_KEY = "benchmark-signer-key-benchmark-signer-key-benchmark-signer-key!!";
+
+    CustomJwtDecoder decoder;
+    String token;
+
+    @Setup
+    public void setUp() throws JOSEException {
+        InvalidatedTokenRepository invalidatedTokenRepository = (InvalidatedTokenRepository) Proxy.newProxyInstance(
+                InvalidatedTokenRepository.class.getClassLoader(), new Class<?>[] { InvalidatedTokenRepository.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("existsById")) {
+                        return false;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        AuthenticationService authenticationService = new AuthenticationService(null, invalidatedTokenRepository);
+        ReflectionTestUtils.setField(authenticationService, "SIGNER_KEY", SIGNER_KEY);
+        ReflectionTestUtils.setField(authenticationService, "VALID_DURATION", 3600L);
+        ReflectionTestUtils.setField(authenticationService, "REFRESHABLE_DURATION", 36000L);
+
+        decoder = new CustomJwtDecoder();
+        ReflectionTestUtils.setField(decoder, "signerKey", SIGNER_KEY);
+        ReflectionTestUtils.setField(decoder, "authenticationService", authenticationService);
+
+        // Same claims as AuthenticationService issues, valid for the whole run
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("benchmark")
+                .issuer("movie.com")
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plus(1, ChronoUnit.DAYS)))
+                .jwtID(UUID.randomUUID().toString())
+                .claim("scope", "USER READ_MEDIA ADD_FAVORITE")
+                .build();
+        SignedJWT signedJWT = new SignedJWT(new JWSHeader(JWSAlgorithm.HS512), claims);
+        signedJWT.sign(new MACSigner(SIGNER_KEY.getBytes()));
+        token = signedJWT.serialize();
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return decoder.decode(token);
+    }
+}
@@ -0,0 +1,101 @@
+package com.group8.Backend.mapper;
+
+import com.group8.Backend.dto.response.MediaResponse;
+import com.group8.Backend.entity.Actor;
+import com.group8.Backend.entity.Director;
+import com.group8.Backend.entity.Episode;
+import com.group8.Backend.entity.Genre;
+import com.group8.Backend.entity.Media;
+import com.group8.Backend.entity.MediaType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MediaMapper.toMediaResponse on a series with every field and association filled,
+ * the heaviest shape the media endpoints return.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MediaMapperBenchmark {
+    MediaMapper mediaMapper;
+    Media media;
+
+    @Setup
+    public void setUp() {
+        mediaMapper = new MediaMapperImpl();
+
+        Set<Genre> genres = new HashSet<>();
+        for (int i = 1; i <= 4; i++) {
+            genres.add(Genre.builder().genreId(i).genreName("Genre " + i).build());
+        }
+        Set<Actor> actors = new HashSet<>();
+        for (int i = 1; i <= 12; i++) {
+            actors.add(Actor.builder()
+                    .actorId(i)
+                    .actorName("Actor " + i)
+                    .bio("Biography of actor " + i)
+                    .birthdate(LocalDate.of(1970 + i, 1, 1))
+                    .profileImageURL("https://img.example.com/actors/" + i + ".jpg")
+                    .build());
+        }
+        Set<Director> directors = new HashSet<>();
+        for (int i = 1; i <= 2; i++) {
+            directors.add(Director.builder().directorId(i).directorName("Director " + i).bio("Biography").build());
+        }
+        Set<Episode> episodes = new HashSet<>();
+        for (int i = 1; i <= 20; i++) {
+            episodes.add(Episode.builder()
+                    .episodeId(i)
+                    .mediaId(1)
+                    .season("Season " + (1 + (i - 1) / 10))
+                    .episodeNumber(i)
+                    .title("Episode " + i)
+                    .description("Description of episode " + i)
+                    .duration(45)
+                    .releaseDate(LocalDate.of(2020, 1, 1).plusWeeks(i))
+                    .build());
+        }
+
+        media = Media.builder()
+                .mediaId(1)
+                .title("Benchmark Series")
+                .description("A fully populated series")
+                .releaseYear(2020)
+                .duration(45)
+                .language("English")
+                .ageRating("PG-13")
+                .posterURL("https://img.example.com/posters/1.jpg")
+                .trailerURL("https://video.example.com/trailers/1.mp4")
+                .streamURL("https://video.example.com/streams/1.m3u8")
+                .viewCount(123456)
+                .accessLevel("PREMIUM")
+                .mediaType(MediaType.Series)
+                .genres(genres)
+                .actors(actors)
+                .directors(directors)
+                .episodes(episodes)
+                .build();
+    }
+
+    @Benchmark
+    public MediaResponse toMediaResponse() {
+        return mediaMapper.toMediaResponse(media);
+    }
+}
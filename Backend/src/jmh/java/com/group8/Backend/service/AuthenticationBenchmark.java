@@ -0,0 +1,71 @@
+package com.group8.Backend.service;
+
+import com.group8.Backend.entity.Permission;
+import com.group8.Backend.entity.Role;
+import com.group8.Backend.entity.User;
+import com.nimbusds.jose.KeyLengthException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuing in AuthenticationService: the scope string alone and the full
+ * signed HS512 token, for a user with two roles and their permissions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthenticationBenchmark {
+    // 64 bytes, the minimum for HS512
+    static final String SIGNER_KEY = "benchmark-signer-key-benchmark-signer-key-benchmark-signer-key!!";
+
+    AuthenticationService authenticationService;
+    User user;
+
+    @Setup
+    public void setUp() {
+        // Issuing a token reads neither repository
+        authenticationService = new AuthenticationService(null, null);
+        authenticationService.SIGNER_KEY = SIGNER_KEY;
+        authenticationService.VALID_DURATION = 3600L;
+        authenticationService.REFRESHABLE_DURATION = 36000L;
+
+        Set<Role> roles = new HashSet<>();
+        roles.add(role(1, "USER", "READ_MEDIA", "ADD_FAVORITE", "REMOVE_FAVORITE", "UPDATE_PROFILE"));
+        roles.add(role(2, "VIP", "WATCH_PREMIUM", "WATCH_VIP", "DOWNLOAD_MEDIA"));
+        user = User.builder().userID(1).username("benchmark").roles(roles).build();
+    }
+
+    static Role role(int roleId, String roleName, String... permissionNames) {
+        Set<Permission> permissions = new HashSet<>();
+        for (int i = 0; i < permissionNames.length; i++) {
+            permissions.add(Permission.builder().permissionId(roleId * 100 + i).permissionName(permissionNames[i]).build());
+        }
+        return Role.builder().roleId(roleId).roleName(roleName).permissions(permissions).build();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String buildScope() {
+        return authenticationService.buildScope(user);
+    }
+
+    @Benchmark
+    public String generateToken() throws KeyLengthException {
+        return authenticationService.generateToken(user);
+    }
+}
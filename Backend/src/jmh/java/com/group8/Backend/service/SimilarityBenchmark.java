@@ -0,0 +1,106 @@
+package com.group8.Backend.service;
+
+import com.group8.Backend.recommendation.EmbeddingStore;
+import com.group8.Backend.recommendation.HnswIndex;
+import com.group8.Backend.recommendation.QuantizedIndex;
+import com.group8.Backend.recommendation.VectorMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pairwise cosine and top-K search over random embeddings.
+ *
+ * {@code legacyCosine} is the original per-pair cosine of RecommendationService,
+ * {@code dot} the kernel the store uses on pre-normalized rows. The top-K
+ * benchmarks query with a stored vector, as neighbour lookups do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimilarityBenchmark {
+    @Param({ "64", "128" })
+    int dimension;
+
+    @Param({ "10000", "60000" })
+    int size;
+
+    EmbeddingStore store;
+    HnswIndex hnsw;
+    QuantizedIndex int8;
+    float[] a;
+    float[] b;
+    float[][] queries;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        Map<Integer, float[]> embeddings = new HashMap<>(size * 2);
+        for (int movieId = 1; movieId <= size; movieId++) {
+            float[] vector = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+            embeddings.put(movieId, vector);
+        }
+        store = EmbeddingStore.from(embeddings);
+        hnsw = HnswIndex.build(store, 16, 200, 100);
+        int8 = QuantizedIndex.build(store, QuantizedIndex.Encoding.INT8, 4);
+        a = store.vectorAt(0);
+        b = store.vectorAt(1);
+        queries = new float[256][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = store.vectorAt(random.nextInt(size));
+        }
+    }
+
+    float[] nextQuery() {
+        next = (next + 1) & (queries.length - 1);
+        return queries[next];
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double legacyCosine() {
+        return RecommendationService.cosineSimilarity(a, b);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public float dot() {
+        return VectorMath.dot(a, b);
+    }
+
+    @Benchmark
+    public int[] exactTop20() {
+        return store.search(nextQuery(), 20, -1, null);
+    }
+
+    @Benchmark
+    public int[] hnswTop20() {
+        return hnsw.search(nextQuery(), 20, -1, null);
+    }
+
+    @Benchmark
+    public int[] int8Top20() {
+        return int8.search(nextQuery(), 20, -1, null);
+    }
+}
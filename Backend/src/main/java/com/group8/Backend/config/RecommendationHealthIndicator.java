@@ -0,0 +1,38 @@
+package com.group8.Backend.config;
+
+import com.group8.Backend.dto.response.RecommendationStatusResponse;
+import com.group8.Backend.enums.ModelState;
+import com.group8.Backend.service.RecommendationService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Readiness of the recommendation model, at /actuator/health/recommendation.
+ *
+ * UNKNOWN while the first model loads and when it failed to load, so the overall
+ * health stays UP: the API serves popular titles meanwhile. UP once a model serves.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RecommendationHealthIndicator implements HealthIndicator {
+
+    RecommendationService recommendationService;
+
+    @Override
+    public Health health() {
+        RecommendationStatusResponse status = recommendationService.getStatus();
+        Health.Builder builder = status.getModelState() == ModelState.READY ? Health.up() : Health.unknown();
+        return builder
+                .withDetail("state", status.getModelState())
+                .withDetail("warmupPercent", status.getWarmupPercent())
+                .withDetail("modelVersion", status.getModelVersion())
+                .withDetail("embeddings", status.getEmbeddings())
+                .withDetail("precomputePercent", status.getPrecomputePercent())
+                .build();
+    }
+}
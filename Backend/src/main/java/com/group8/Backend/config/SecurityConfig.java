@@ -1,5 +1,7 @@
 package com.group8.Backend.config;
 
+import com.group8.Backend.constant.PredefinedRole;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -42,10 +44,15 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource())) // Kích hoạt CORS trong Spring Security
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(request -> request
+                        // Async results are dispatched again after the original request was authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(HttpMethod.GET, PUBLIC_MEDIA_ENDPOINTS).permitAll()
                         .requestMatchers(HttpMethod.POST, PUBLIC_ENDPOINTS).permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // Cho phép OPTIONS cho tất cả endpoint
-                        .requestMatchers("/api/recommendations/clear-cache").permitAll()
+                        // Probes; details are only shown to authorized users
+                        .requestMatchers(HttpMethod.GET, "/actuator/health", "/actuator/health/**").permitAll()
+                        // Metrics reveal traffic and cache sizes; the scraper sends an admin bearer token
+                        .requestMatchers(HttpMethod.GET, "/actuator/prometheus").hasRole(PredefinedRole.ADMIN_ROLE)
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 ->
@@ -2,11 +2,13 @@ package com.group8.Backend.controller;
 
 import com.group8.Backend.dto.request.ApiResponse;
 import com.group8.Backend.dto.response.MediaResponse;
+import com.group8.Backend.entity.MediaType;
 import com.group8.Backend.service.FavoriteService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/favorites")
@@ -40,10 +42,14 @@ public class FavoriteController {
     }
     
     @GetMapping("/recommendations")
-    public ApiResponse<List<MediaResponse>> getRecommendations() {
-        return ApiResponse.<List<MediaResponse>>builder()
-                .code(1000)
-                .result(favoriteService.getRecommendations())
-                .build();
+    public CompletableFuture<ApiResponse<List<MediaResponse>>> getRecommendations(
+            @RequestParam(required = false) String mode,
+            @RequestParam(required = false) String mediaType) {
+        MediaType type = mediaType != null ? MediaType.valueOf(mediaType) : null;
+        return favoriteService.getRecommendations(mode, type)
+                .thenApply(recommendations -> ApiResponse.<List<MediaResponse>>builder()
+                        .code(1000)
+                        .result(recommendations)
+                        .build());
     }
 }
\ No newline at end of file
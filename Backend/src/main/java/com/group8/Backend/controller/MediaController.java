@@ -5,15 +5,22 @@ import com.group8.Backend.dto.request.MediaCreationRequest;
 import com.group8.Backend.dto.request.MediaUpdateRequest;
 import com.group8.Backend.dto.response.MediaResponse;
 import com.group8.Backend.dto.response.PaginatedResponse;
+import com.group8.Backend.entity.MediaType;
 import com.group8.Backend.service.MediaService;
+import com.group8.Backend.service.PopularMediaService;
+import com.group8.Backend.service.RecommendationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/media")
 @RequiredArgsConstructor
 public class MediaController {
     private final MediaService mediaService;
+    private final PopularMediaService popularMediaService;
+    private final RecommendationService recommendationService;
 
     @PostMapping
     public ApiResponse<MediaResponse> createMedia(@RequestBody MediaCreationRequest request) {
@@ -63,6 +70,29 @@ public class MediaController {
                 .build();
     }
 
+    @GetMapping("/popular")
+    public ApiResponse<List<MediaResponse>> getPopularMedia(
+            @RequestParam(required = false) String mediaType,
+            @RequestParam(required = false) Integer genreId) {
+        MediaType type = mediaType != null ? MediaType.valueOf(mediaType) : null;
+        return ApiResponse.<List<MediaResponse>>builder()
+                .code(1000)
+                .result(popularMediaService.getPopular(type, genreId))
+                .build();
+    }
+
+    // "More like this" rail for a detail page, by embedding similarity; limited to what userId can play when given
+    @GetMapping("/{mediaId}/similar")
+    public ApiResponse<List<MediaResponse>> getSimilarMedia(
+            @PathVariable int mediaId,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) Integer userId) {
+        return ApiResponse.<List<MediaResponse>>builder()
+                .code(1000)
+                .result(recommendationService.getSimilarMedia(mediaId, Math.max(1, limit), userId))
+                .build();
+    }
+
     @GetMapping("/search")
     public ApiResponse<PaginatedResponse<MediaResponse>> searchMedia(
             @RequestParam(defaultValue = "0") Integer page,
@@ -2,6 +2,8 @@ package com.group8.Backend.controller;
 
 import com.group8.Backend.dto.request.ApiResponse;
 import com.group8.Backend.dto.response.MediaResponse;
+import com.group8.Backend.dto.response.RecommendationStatusResponse;
+import com.group8.Backend.entity.MediaType;
 import com.group8.Backend.service.RecommendationService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -9,6 +11,7 @@ import lombok.experimental.FieldDefaults;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/recommendations")
@@ -27,13 +30,33 @@ public class RecommendationController {
                 .build();
     }
     
-    // You could also add other recommendation-related endpoints here
-    @GetMapping("/for-user/{userId}")
-    public ApiResponse<List<MediaResponse>> getRecommendationsForUser(@PathVariable int userId) {
-        List<MediaResponse> recommendations = recommendationService.getRecommendationsForUser(userId);
-        return ApiResponse.<List<MediaResponse>>builder()
+    @PostMapping("/reload")
+    public ApiResponse<String> reloadModel(@RequestParam(required = false) String modelPath) {
+        int version = recommendationService.reloadModel(modelPath);
+        return ApiResponse.<String>builder()
                 .code(1000)
-                .result(recommendations)
+                .result("Reloading model as version " + version)
                 .build();
     }
+
+    @GetMapping("/status")
+    public ApiResponse<RecommendationStatusResponse> getStatus() {
+        return ApiResponse.<RecommendationStatusResponse>builder()
+                .code(1000)
+                .result(recommendationService.getStatus())
+                .build();
+    }
+
+    // You could also add other recommendation-related endpoints here
+    @GetMapping("/for-user/{userId}")
+    public CompletableFuture<ApiResponse<List<MediaResponse>>> getRecommendationsForUser(
+            @PathVariable int userId, @RequestParam(required = false) String mode,
+            @RequestParam(required = false) String mediaType) {
+        MediaType type = mediaType != null ? MediaType.valueOf(mediaType) : null;
+        return recommendationService.getRecommendationsForUserAsync(userId, mode, type)
+                .thenApply(recommendations -> ApiResponse.<List<MediaResponse>>builder()
+                        .code(1000)
+                        .result(recommendations)
+                        .build());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.group8.Backend.dto.response;
+
+import com.group8.Backend.enums.ModelState;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class RecommendationStatusResponse {
+    ModelState modelState;
+    double warmupPercent;
+    int modelVersion;
+    boolean reloading;
+    int embeddings;
+    boolean embeddingsOffHeap;
+    String indexType;
+    Double indexRecall;
+    int addedEmbeddings;
+    int filterableTitles;
+    int movieLensLinks;
+    int coFavoriteItems;
+    double precomputePercent;
+    long precomputeMillis;
+    boolean precomputeComplete;
+}
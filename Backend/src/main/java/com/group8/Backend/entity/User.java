@@ -48,6 +48,10 @@ public class User {
     @Column(name = "LastLogin")
     LocalDateTime lastLogin;
 
+    // When the favorites last changed, written by UserRecommendationStore; never by a save, which may hold a stale copy
+    @Column(name = "FavoritesChangedAt", insertable = false, updatable = false)
+    LocalDateTime favoritesChangedAt;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "AccountStatus", nullable = false, columnDefinition = "ENUM('Active', 'Banned', 'Suspended') DEFAULT 'Active'")
     AccountStatus accountStatus = AccountStatus.Active;
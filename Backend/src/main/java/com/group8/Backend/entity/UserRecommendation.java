@@ -0,0 +1,44 @@
+package com.group8.Backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * One precomputed recommendation: the title at {@code position} of a user's stored candidate pool.
+ * Mapped so the schema is managed with the other tables; rows are read and written in bulk through
+ * UserRecommendationStore.
+ */
+@Entity
+@Table(name = "user_recommendations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@IdClass(UserRecommendationId.class)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserRecommendation {
+    @Id
+    @Column(name = "UserID")
+    int userId;
+
+    @Id
+    @Column(name = "Position")
+    int position;
+
+    @Column(name = "MediaID", nullable = false)
+    int mediaId;
+
+    // Mode the pool was scored with, e.g. "VOTE"
+    @Column(name = "Mode", nullable = false, length = 20)
+    String mode;
+
+    // Access levels the user could play when it was scored, as in RecommendationService
+    @Column(name = "AccessMask", nullable = false)
+    int accessMask;
+
+    @Column(name = "ComputedAt", nullable = false)
+    LocalDateTime computedAt;
+}
@@ -0,0 +1,17 @@
+package com.group8.Backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserRecommendationId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int userId;
+    private int position;
+}
@@ -0,0 +1,11 @@
+package com.group8.Backend.enums;
+
+public enum ModelState {
+    // The first model is still loading; recommendations are served from popular titles
+    LOADING,
+    // A model version is serving
+    READY,
+    // The first model could not be loaded; sample data is served instead
+    FAILED,
+    ;
+}
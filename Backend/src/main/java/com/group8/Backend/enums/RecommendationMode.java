@@ -0,0 +1,35 @@
+package com.group8.Backend.enums;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+public enum RecommendationMode {
+    // One neighbour search per favorite, candidates ranked by how many favorites they are close to
+    VOTE,
+    // One search for the mean of the favorites' embeddings
+    MEAN,
+    // One search for a mean weighted towards recently added favorites
+    RECENT,
+    // Titles most often favorited together with the user's favorites; needs no model
+    COFAVORITE,
+    ;
+
+    /** Mode for a request parameter such as {@code "mean"}, or null when unknown. */
+    public static RecommendationMode fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Request names of every mode for messages, e.g. {@code "vote, mean or recent"}. */
+    public static String names() {
+        String names = Arrays.stream(values())
+                .map(mode -> mode.name().toLowerCase(Locale.ROOT))
+                .collect(Collectors.joining(", "));
+        int last = names.lastIndexOf(", ");
+        return last < 0 ? names : names.substring(0, last) + " or " + names.substring(last + 2);
+    }
+}
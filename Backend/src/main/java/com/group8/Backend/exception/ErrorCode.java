@@ -1,6 +1,7 @@
 package com.group8.Backend.exception;
 
 
+import com.group8.Backend.enums.RecommendationMode;
 import lombok.Getter;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -23,6 +24,9 @@ public enum ErrorCode
     TOKEN_EXPIRED(1013,  "Token is expired", HttpStatus.UNAUTHORIZED),
     TOKEN_ALREADY_INVALIDATED(1014,  "Token is already invalidated", HttpStatus.UNAUTHORIZED),
     INVALID_PASSWORD(1015,  "Invalid password", HttpStatus.UNAUTHORIZED),
+    MODEL_RELOAD_IN_PROGRESS(1016, "A model reload is already running", HttpStatus.CONFLICT),
+    INVALID_MODEL_PATH(1017, "Model file not found or not allowed", HttpStatus.BAD_REQUEST),
+    INVALID_RECOMMENDATION_MODE(1018, "Recommendation mode must be " + RecommendationMode.names(), HttpStatus.BAD_REQUEST),
     ;
 
 
@@ -15,6 +15,7 @@ public interface UserMapper {
     @Mapping(target = "subscriptionPlan", expression = "java(com.group8.Backend.entity.SubscriptionPlan.Free)")
     @Mapping(target = "accountStatus", expression = "java(com.group8.Backend.entity.AccountStatus.Active)")
     @Mapping(target = "roles", expression = "java(new java.util.HashSet<>())")
+    @Mapping(target = "favoritesChangedAt", ignore = true)
     User toUser(UserCreationRequest request);
 
     @Mapping(source = "userID", target = "userID")
@@ -28,5 +29,6 @@ public interface UserMapper {
     @Mapping(target = "joinDate", ignore = true)
     @Mapping(target = "passwordHash", ignore = true)
     @Mapping(target = "roles", ignore = true)
+    @Mapping(target = "favoritesChangedAt", ignore = true)
     void updateUser(@MappingTarget User user, UserUpdateRequest request);
 }
\ No newline at end of file
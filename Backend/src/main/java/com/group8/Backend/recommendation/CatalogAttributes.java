@@ -0,0 +1,260 @@
+package com.group8.Backend.recommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-access-level and per-media-type bitsets over the rows of an
+ * {@link EmbeddingStore}, for building {@link CatalogFilter}s.
+ *
+ * Only movies linked to a media row get a bit, so every filter also drops
+ * ids that would not resolve to a title. Movies indexed after the store was
+ * built are kept in a small map beside the bitsets, and every media id maps
+ * to its (access level, media type) pair for candidates that come from
+ * outside the embeddings. Built once and swapped as a whole, or copied with
+ * one media row changed ({@link #withMedia}); filters are combined on first
+ * use and reused.
+ */
+public final class CatalogAttributes {
+    final EmbeddingStore store;
+    final Map<String, BitSet> byAccessLevel;
+    final Map<String, BitSet> byMediaType;
+    final BitSet listed;
+    final Map<Integer, String[]> outsideStore;
+    // Media id to an index into mediaAttributes
+    final IntIntHashMap mediaCodes;
+    final String[][] mediaAttributes;
+    final long builtAtMillis = System.currentTimeMillis();
+    final ConcurrentHashMap<String, CatalogFilter> filters = new ConcurrentHashMap<>();
+
+    private CatalogAttributes(Builder builder) {
+        this(builder.store, builder.byAccessLevel, builder.byMediaType, builder.listed, builder.outsideStore,
+                builder.mediaCodes, builder.mediaAttributes.toArray(new String[0][]));
+    }
+
+    private CatalogAttributes(EmbeddingStore store, Map<String, BitSet> byAccessLevel, Map<String, BitSet> byMediaType,
+                              BitSet listed, Map<Integer, String[]> outsideStore, IntIntHashMap mediaCodes,
+                              String[][] mediaAttributes) {
+        this.store = store;
+        this.byAccessLevel = Map.copyOf(byAccessLevel);
+        this.byMediaType = Map.copyOf(byMediaType);
+        this.listed = listed;
+        this.outsideStore = Map.copyOf(outsideStore);
+        this.mediaCodes = mediaCodes;
+        this.mediaAttributes = mediaAttributes;
+    }
+
+    public static Builder builder(EmbeddingStore store) {
+        return new Builder(store);
+    }
+
+    public EmbeddingStore store() {
+        return store;
+    }
+
+    /** Distinct access levels in the catalog, upper-cased; an empty string stands for none. */
+    public Set<String> accessLevels() {
+        Set<String> levels = new HashSet<>(byAccessLevel.keySet());
+        for (String[] attributes : outsideStore.values()) {
+            levels.add(attributes[0]);
+        }
+        for (String[] attributes : mediaAttributes) {
+            levels.add(attributes[0]);
+        }
+        return levels;
+    }
+
+    /** Movies with a media row, in the store or added beside it. */
+    public int listed() {
+        return listed.cardinality() + outsideStore.size();
+    }
+
+    public long builtAtMillis() {
+        return builtAtMillis;
+    }
+
+    /** Whether {@code movieId} has a media row, in the store or added beside it. */
+    public boolean lists(int movieId) {
+        int row = store.rowOf(movieId);
+        return row >= 0 ? listed.get(row) : outsideStore.containsKey(movieId);
+    }
+
+    /** The normalized (access level, media type) of {@code mediaId}, or null when it has no media row. */
+    public String[] mediaAttributes(int mediaId) {
+        int code = mediaCodes.get(mediaId, -1);
+        return code < 0 ? null : mediaAttributes[code].clone();
+    }
+
+    /**
+     * A copy with {@code mediaId} recorded under new attributes, for a title created or edited after
+     * these were built. Only the bitsets whose bit for the movie changes are copied; the rest are shared.
+     *
+     * @param movieId the MovieLens id the media is recommended as, or {@link MovieLensLinks#NO_ID}
+     * @param indexed whether the movie is searchable outside the store
+     */
+    public CatalogAttributes withMedia(int mediaId, int movieId, String accessLevel, String mediaType,
+                                       boolean indexed) {
+        String level = normalize(accessLevel);
+        String type = mediaType == null ? "" : mediaType;
+        Map<String, BitSet> levels = byAccessLevel;
+        Map<String, BitSet> types = byMediaType;
+        BitSet listedRows = listed;
+        Map<Integer, String[]> outside = outsideStore;
+        int row = movieId == MovieLensLinks.NO_ID ? -1 : store.rowOf(movieId);
+        if (row >= 0) {
+            levels = moveRow(byAccessLevel, row, level);
+            types = moveRow(byMediaType, row, type);
+            if (!listed.get(row)) {
+                listedRows = (BitSet) listed.clone();
+                listedRows.set(row);
+            }
+        } else if (movieId != MovieLensLinks.NO_ID && indexed) {
+            outside = new HashMap<>(outsideStore);
+            outside.put(movieId, new String[] { level, type });
+        }
+
+        String[][] attributes = mediaAttributes;
+        int code = 0;
+        while (code < attributes.length && !(attributes[code][0].equals(level) && attributes[code][1].equals(type))) {
+            code++;
+        }
+        if (code == attributes.length) {
+            attributes = Arrays.copyOf(attributes, code + 1);
+            attributes[code] = new String[] { level, type };
+        }
+        IntIntHashMap codes = mediaCodes.copy();
+        codes.put(mediaId, code);
+        return new CatalogAttributes(store, levels, types, listedRows, outside, codes, attributes);
+    }
+
+    // The row's bit cleared under every other key and set under key, copying only the bitsets that change
+    private Map<String, BitSet> moveRow(Map<String, BitSet> bitsets, int row, String key) {
+        Map<String, BitSet> moved = new HashMap<>(bitsets);
+        bitsets.forEach((other, bits) -> {
+            if (!other.equals(key) && bits.get(row)) {
+                BitSet cleared = (BitSet) bits.clone();
+                cleared.clear(row);
+                moved.put(other, cleared);
+            }
+        });
+        BitSet bits = bitsets.get(key);
+        if (bits == null || !bits.get(row)) {
+            BitSet set = bits == null ? new BitSet(store.size()) : (BitSet) bits.clone();
+            set.set(row);
+            moved.put(key, set);
+        }
+        return moved;
+    }
+
+    /**
+     * Movies whose media has one of {@code accessLevels} and one of {@code mediaTypes}.
+     *
+     * @param accessLevels upper-cased access levels, or null for any
+     * @param mediaTypes   media type names, or null for any
+     */
+    public CatalogFilter filter(Set<String> accessLevels, Set<String> mediaTypes) {
+        String key = (accessLevels == null ? "*" : new TreeSet<>(accessLevels).toString())
+                + '|' + (mediaTypes == null ? "*" : new TreeSet<>(mediaTypes).toString());
+        return filters.computeIfAbsent(key, ignored -> combine(accessLevels, mediaTypes));
+    }
+
+    private CatalogFilter combine(Set<String> accessLevels, Set<String> mediaTypes) {
+        BitSet rows = (BitSet) listed.clone();
+        if (accessLevels != null) {
+            rows.and(union(byAccessLevel, accessLevels));
+        }
+        if (mediaTypes != null) {
+            rows.and(union(byMediaType, mediaTypes));
+        }
+        Set<Integer> outside = new HashSet<>();
+        outsideStore.forEach((movieId, attributes) -> {
+            if ((accessLevels == null || accessLevels.contains(attributes[0]))
+                    && (mediaTypes == null || mediaTypes.contains(attributes[1]))) {
+                outside.add(movieId);
+            }
+        });
+        boolean[] acceptedCodes = new boolean[mediaAttributes.length];
+        for (int code = 0; code < mediaAttributes.length; code++) {
+            acceptedCodes[code] = (accessLevels == null || accessLevels.contains(mediaAttributes[code][0]))
+                    && (mediaTypes == null || mediaTypes.contains(mediaAttributes[code][1]));
+        }
+        return new CatalogFilter(store, rows, outside, mediaCodes, acceptedCodes);
+    }
+
+    private BitSet union(Map<String, BitSet> bitsets, Set<String> keys) {
+        BitSet union = new BitSet(store.size());
+        for (String key : keys) {
+            BitSet bits = bitsets.get(key);
+            if (bits != null) {
+                union.or(bits);
+            }
+        }
+        return union;
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public static final class Builder {
+        final EmbeddingStore store;
+        final Map<String, BitSet> byAccessLevel = new HashMap<>();
+        final Map<String, BitSet> byMediaType = new HashMap<>();
+        final BitSet listed;
+        final Map<Integer, String[]> outsideStore = new HashMap<>();
+        final IntIntHashMap mediaCodes = new IntIntHashMap(1024);
+        final List<String[]> mediaAttributes = new ArrayList<>();
+        final Map<String, Integer> codes = new HashMap<>();
+
+        Builder(EmbeddingStore store) {
+            this.store = store;
+            this.listed = new BitSet(store.size());
+        }
+
+        /**
+         * Records the media linked to {@code movieId}; the first media per movie wins.
+         *
+         * @param indexed whether the movie is searchable outside the store (added to the index later)
+         */
+        public Builder add(int movieId, String accessLevel, String mediaType, boolean indexed) {
+            String level = normalize(accessLevel);
+            String type = mediaType == null ? "" : mediaType;
+            int row = store.rowOf(movieId);
+            if (row >= 0) {
+                if (!listed.get(row)) {
+                    listed.set(row);
+                    byAccessLevel.computeIfAbsent(level, ignored -> new BitSet(store.size())).set(row);
+                    byMediaType.computeIfAbsent(type, ignored -> new BitSet(store.size())).set(row);
+                }
+            } else if (indexed) {
+                outsideStore.putIfAbsent(movieId, new String[] { level, type });
+            }
+            return this;
+        }
+
+        /** Records the attributes of a media row, linked or not. */
+        public Builder media(int mediaId, String accessLevel, String mediaType) {
+            String level = normalize(accessLevel);
+            String type = mediaType == null ? "" : mediaType;
+            int code = codes.computeIfAbsent(level + '|' + type, ignored -> {
+                mediaAttributes.add(new String[] { level, type });
+                return mediaAttributes.size() - 1;
+            });
+            mediaCodes.put(mediaId, code);
+            return this;
+        }
+
+        public CatalogAttributes build() {
+            return new CatalogAttributes(this);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.group8.Backend.recommendation;
+
+import java.util.BitSet;
+import java.util.Set;
+
+/**
+ * The movies a search may return, as a bitset over the rows of one
+ * {@link EmbeddingStore} plus the ids indexed outside it.
+ *
+ * Indexes test candidates against the filter while they scan, so a filtered
+ * search still returns {@code k} eligible movies instead of whatever is left
+ * of an unfiltered top-{@code k}. Instances are immutable.
+ */
+public final class CatalogFilter {
+    final EmbeddingStore store;
+    final BitSet rows;
+    final Set<Integer> outsideStore;
+    final int cardinality;
+    final IntIntHashMap mediaCodes;
+    final boolean[] acceptedCodes;
+
+    CatalogFilter(EmbeddingStore store, BitSet rows, Set<Integer> outsideStore, IntIntHashMap mediaCodes,
+                  boolean[] acceptedCodes) {
+        this.store = store;
+        this.rows = rows;
+        this.outsideStore = Set.copyOf(outsideStore);
+        this.cardinality = rows.cardinality();
+        this.mediaCodes = mediaCodes;
+        this.acceptedCodes = acceptedCodes;
+    }
+
+    /** Accepted rows of the store, not counting ids outside it. */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean acceptsRow(int row) {
+        return rows.get(row);
+    }
+
+    public boolean accepts(int movieId) {
+        int row = store.rowOf(movieId);
+        return row >= 0 ? rows.get(row) : outsideStore.contains(movieId);
+    }
+
+    /** Whether a media id, linked to the embeddings or not, passes the filter. */
+    public boolean acceptsMedia(int mediaId) {
+        int code = mediaCodes.get(mediaId, -1);
+        return code >= 0 && acceptedCodes[code];
+    }
+
+    // Next row at or after from that filter accepts, or -1; a null filter accepts every row
+    static int nextRow(CatalogFilter filter, int from, int size) {
+        if (filter == null) {
+            return from < size ? from : -1;
+        }
+        int row = filter.rows.nextSetBit(from);
+        return row < size ? row : -1;
+    }
+}
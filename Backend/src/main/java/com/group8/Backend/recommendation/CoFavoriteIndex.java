@@ -0,0 +1,225 @@
+package com.group8.Backend.recommendation;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Item-item co-occurrence counts from users' favorites, keyed by media id.
+ *
+ * Two titles co-occur once for every user who has favorited both. Each title
+ * keeps a sparse adjacency list of (media id, count) in primitive arrays,
+ * pruned to its strongest {@code maxNeighbours} whenever it fills up, so
+ * memory stays linear in the catalog however many users there are. Counts of
+ * pruned pairs restart from zero if they come back, which only affects the
+ * weakest pairs; a periodic rebuild resets the drift.
+ *
+ * Neighbours are ranked by the cosine of the two titles' favorite sets,
+ * {@code count / sqrt(favoritesA * favoritesB)}, so popular titles do not
+ * top every list. Needs no model, so it also covers titles without a
+ * MovieLens link.
+ */
+public final class CoFavoriteIndex {
+    final int maxNeighbours;
+    final ConcurrentHashMap<Integer, Item> items = new ConcurrentHashMap<>();
+
+    public CoFavoriteIndex(int maxNeighbours) {
+        if (maxNeighbours <= 0) {
+            throw new IllegalArgumentException("maxNeighbours must be positive");
+        }
+        this.maxNeighbours = maxNeighbours;
+    }
+
+    /**
+     * Streaming builder fed one (user, media) row at a time, ordered by user; pairs
+     * are counted when the user changes, so only one user's favorites are held.
+     */
+    public static Builder builder(int maxNeighbours, int maxUserFavorites) {
+        return new Builder(new CoFavoriteIndex(maxNeighbours), maxUserFavorites);
+    }
+
+    /** Titles favorited by at least one user. */
+    public int items() {
+        return items.size();
+    }
+
+    /**
+     * Records that a user favorited {@code mediaId} while already having {@code others}.
+     */
+    public void add(int mediaId, int[] others) {
+        update(mediaId, others, others.length, 1);
+    }
+
+    /**
+     * Records that a user removed {@code mediaId} from favorites, keeping {@code others}.
+     */
+    public void remove(int mediaId, int[] others) {
+        update(mediaId, others, others.length, -1);
+    }
+
+    private void update(int mediaId, int[] others, int count, int delta) {
+        Item item = item(mediaId);
+        item.changeFavorites(delta);
+        for (int i = 0; i < count; i++) {
+            int other = others[i];
+            if (other != mediaId) {
+                item.change(other, delta, maxNeighbours);
+                item(other).change(mediaId, delta, maxNeighbours);
+            }
+        }
+    }
+
+    private Item item(int mediaId) {
+        return items.computeIfAbsent(mediaId, ignored -> new Item());
+    }
+
+    /**
+     * Titles most often favorited together with {@code mediaId}.
+     *
+     * @param accept only titles it accepts are returned, or null for all
+     * @param scores if not null, receives the cosine of each returned title
+     * @return media ids ordered by descending cosine
+     */
+    public int[] neighbours(int mediaId, int k, IntPredicate accept, float[] scores) {
+        Item item = items.get(mediaId);
+        if (item == null || k <= 0) {
+            return new int[0];
+        }
+        int[] ids;
+        int[] counts;
+        int favorites;
+        synchronized (item) {
+            ids = Arrays.copyOf(item.ids, item.size);
+            counts = Arrays.copyOf(item.counts, item.size);
+            favorites = item.favorites;
+        }
+        if (ids.length == 0 || favorites <= 0) {
+            return new int[0];
+        }
+
+        TopK best = new TopK(Math.min(k, ids.length));
+        for (int i = 0; i < ids.length; i++) {
+            if (accept != null && !accept.test(ids[i])) {
+                continue;
+            }
+            Item other = items.get(ids[i]);
+            int otherFavorites = other == null ? 0 : other.favorites;
+            if (otherFavorites > 0) {
+                best.offer(ids[i], (float) (counts[i] / Math.sqrt((double) favorites * otherFavorites)));
+            }
+        }
+        return scores == null ? best.drainDescending() : best.drainDescending(scores);
+    }
+
+    static final class Item {
+        // Users who favorited this title; written under the item's lock
+        volatile int favorites;
+        int[] ids = new int[4];
+        int[] counts = new int[4];
+        int size;
+
+        synchronized void changeFavorites(int delta) {
+            favorites = Math.max(0, favorites + delta);
+        }
+
+        synchronized void change(int other, int delta, int maxNeighbours) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == other) {
+                    counts[i] += delta;
+                    if (counts[i] <= 0) {
+                        // Swap-remove; the list is unordered
+                        size--;
+                        ids[i] = ids[size];
+                        counts[i] = counts[size];
+                    }
+                    return;
+                }
+            }
+            if (delta <= 0) {
+                return;
+            }
+            if (size == ids.length) {
+                // Grow up to twice the kept size, then prune back to the strongest
+                if (ids.length < 2 * maxNeighbours) {
+                    int capacity = Math.min(ids.length * 2, 2 * maxNeighbours);
+                    ids = Arrays.copyOf(ids, capacity);
+                    counts = Arrays.copyOf(counts, capacity);
+                } else {
+                    prune(maxNeighbours);
+                }
+            }
+            ids[size] = other;
+            counts[size] = delta;
+            size++;
+        }
+
+        // Keeps the maxNeighbours highest counts
+        private void prune(int maxNeighbours) {
+            TopK strongest = new TopK(maxNeighbours);
+            for (int i = 0; i < size; i++) {
+                strongest.offer(i, counts[i]);
+            }
+            int kept = strongest.size();
+            int[] rows = strongest.drainDescending();
+            int[] keptIds = new int[ids.length];
+            int[] keptCounts = new int[ids.length];
+            for (int i = 0; i < kept; i++) {
+                keptIds[i] = ids[rows[i]];
+                keptCounts[i] = counts[rows[i]];
+            }
+            ids = keptIds;
+            counts = keptCounts;
+            size = kept;
+        }
+    }
+
+    public static final class Builder {
+        final CoFavoriteIndex index;
+        final int maxUserFavorites;
+        int[] current = new int[16];
+        int currentSize;
+        int currentUser = Integer.MIN_VALUE;
+        long users;
+
+        Builder(CoFavoriteIndex index, int maxUserFavorites) {
+            this.index = index;
+            this.maxUserFavorites = Math.max(1, maxUserFavorites);
+        }
+
+        /** Rows must arrive grouped by user; a user's rows past maxUserFavorites are ignored. */
+        public void accept(int userId, int mediaId) {
+            if (userId != currentUser) {
+                flush();
+                currentUser = userId;
+            }
+            if (currentSize == maxUserFavorites) {
+                return;
+            }
+            if (currentSize == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[currentSize++] = mediaId;
+        }
+
+        private void flush() {
+            if (currentSize == 0) {
+                return;
+            }
+            users++;
+            for (int i = 0; i < currentSize; i++) {
+                // Each new title pairs with the ones before it, as if added one at a time
+                index.update(current[i], current, i, 1);
+            }
+            currentSize = 0;
+        }
+
+        public long users() {
+            return users;
+        }
+
+        public CoFavoriteIndex build() {
+            flush();
+            return index;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.group8.Backend.recommendation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Versioned binary snapshot of an {@link EmbeddingStore}.
+ *
+ * Layout, little-endian:
+ * <pre>
+ *   int     magic      'MLEB'
+ *   int     version
+ *   byte[32] SHA-256 of the model file the embeddings came from
+ *   int     count
+ *   int     dimension
+ *   int[count]             MovieLens ids, ascending
+ *   float[count*dimension] normalized vectors, row-major
+ * </pre>
+ * Loading maps the file read-only, so the vectors stay off-heap and are
+ * shared with the page cache; only the id table is copied onto the heap.
+ */
+public final class EmbeddingSnapshot {
+    static final int MAGIC = 0x42454C4D; // "MLEB" read as little-endian
+    static final int VERSION = 1;
+    static final int CHECKSUM_BYTES = 32;
+    static final int HEADER_BYTES = 4 + 4 + CHECKSUM_BYTES + 4 + 4;
+
+    private EmbeddingSnapshot() {
+    }
+
+    /** SHA-256 of a file, streamed so large model files are not read into memory. */
+    public static byte[] checksum(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Writes the store to {@code target} through a temporary file and an
+     * atomic rename, so readers never see a half-written snapshot.
+     */
+    public static void write(Path target, byte[] checksum, EmbeddingStore store) throws IOException {
+        if (checksum.length != CHECKSUM_BYTES) {
+            throw new IllegalArgumentException("Checksum must be " + CHECKSUM_BYTES + " bytes");
+        }
+        Path directory = target.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        int count = store.size();
+        int dimension = store.dimension();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).put(checksum).putInt(count).putInt(dimension).flip();
+            writeFully(channel, header);
+
+            ByteBuffer ids = ByteBuffer.allocate(count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            ids.asIntBuffer().put(store.ids);
+            writeFully(channel, ids);
+
+            // Stream the matrix one row block at a time to bound the temporary buffer
+            int rowsPerChunk = Math.max(1, (1 << 20) / Math.max(1, dimension * Float.BYTES));
+            ByteBuffer chunk = ByteBuffer.allocate(rowsPerChunk * dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            float[] row = new float[dimension];
+            for (int start = 0; start < count; start += rowsPerChunk) {
+                chunk.clear();
+                FloatBuffer floats = chunk.asFloatBuffer();
+                int end = Math.min(count, start + rowsPerChunk);
+                for (int r = start; r < end; r++) {
+                    store.matrix.get(r * dimension, row);
+                    floats.put(row);
+                }
+                chunk.limit((end - start) * dimension * Float.BYTES);
+                writeFully(channel, chunk);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a snapshot written for the model with {@code expectedChecksum}.
+     *
+     * @return the mapped store, or null if the file is missing, was written
+     *         by another model or format version, or is truncated
+     */
+    public static EmbeddingStore load(Path source, byte[] expectedChecksum) throws IOException {
+        if (!Files.isRegularFile(source)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES || fileSize > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+                return null;
+            }
+            byte[] checksum = new byte[CHECKSUM_BYTES];
+            mapped.get(checksum);
+            if (!Arrays.equals(checksum, expectedChecksum)) {
+                return null;
+            }
+            int count = mapped.getInt();
+            int dimension = mapped.getInt();
+            long expectedSize = HEADER_BYTES + (long) count * Integer.BYTES + (long) count * dimension * Float.BYTES;
+            if (count < 0 || dimension < 0 || expectedSize != fileSize) {
+                return null;
+            }
+
+            int[] ids = new int[count];
+            mapped.asIntBuffer().get(ids);
+            mapped.position(HEADER_BYTES + count * Integer.BYTES);
+            FloatBuffer matrix = mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            return new EmbeddingStore(ids, matrix, dimension);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.group8.Backend.recommendation;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable, contiguous store of L2-normalized movie embeddings.
+ *
+ * Row {@code r} occupies floats {@code [r * dimension, (r + 1) * dimension)}
+ * of {@code matrix} and belongs to MovieLens id {@code ids[r]}. The matrix
+ * is either a wrapped heap array, also kept as {@code heap} so the kernels
+ * can index it directly, or a memory-mapped snapshot file (see
+ * {@link EmbeddingSnapshot}). Ids are kept sorted so a lookup is a binary
+ * search with no boxing. Because every row is unit length, cosine
+ * similarity reduces to a plain dot product.
+ */
+public final class EmbeddingStore implements SimilarityIndex {
+    // Rows copied per block when scanning a mapped matrix
+    static final int SCAN_BLOCK_ROWS = 64;
+
+    final int[] ids;
+    final FloatBuffer matrix;
+    final float[] heap;
+    final int dimension;
+
+    EmbeddingStore(int[] ids, FloatBuffer matrix, int dimension) {
+        this.ids = ids;
+        this.matrix = matrix;
+        this.heap = matrix.hasArray() && matrix.arrayOffset() == 0 ? matrix.array() : null;
+        this.dimension = dimension;
+    }
+
+    /**
+     * Copies and normalizes the given embeddings. Vectors whose length does
+     * not match the first one seen are skipped.
+     */
+    public static EmbeddingStore from(Map<Integer, float[]> embeddings) {
+        int[] sortedIds = embeddings.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        if (sortedIds.length == 0) {
+            return new EmbeddingStore(new int[0], FloatBuffer.allocate(0), 0);
+        }
+
+        int dimension = embeddings.get(sortedIds[0]).length;
+        int[] ids = new int[sortedIds.length];
+        float[] matrix = new float[sortedIds.length * dimension];
+        int rows = 0;
+        for (int id : sortedIds) {
+            float[] vector = embeddings.get(id);
+            if (vector == null || vector.length != dimension) {
+                continue;
+            }
+            int offset = rows * dimension;
+            System.arraycopy(vector, 0, matrix, offset, dimension);
+            VectorMath.normalize(matrix, offset, dimension);
+            ids[rows++] = id;
+        }
+
+        if (rows != ids.length) {
+            ids = Arrays.copyOf(ids, rows);
+            matrix = Arrays.copyOf(matrix, rows * dimension);
+        }
+        return new EmbeddingStore(ids, FloatBuffer.wrap(matrix), dimension);
+    }
+
+    /**
+     * A heap copy of this store with {@code added} normalized and merged in by id. Ids already
+     * stored keep their vector, and vectors of another dimension are skipped.
+     *
+     * @return this store when nothing is added
+     */
+    public EmbeddingStore withVectors(Map<Integer, float[]> added) {
+        if (ids.length == 0) {
+            return from(added);
+        }
+        int[] addedIds = added.entrySet().stream()
+                .filter(entry -> entry.getValue() != null && entry.getValue().length == dimension
+                        && !contains(entry.getKey()))
+                .mapToInt(Map.Entry::getKey)
+                .sorted()
+                .toArray();
+        if (addedIds.length == 0) {
+            return this;
+        }
+
+        int rows = ids.length + addedIds.length;
+        int[] mergedIds = new int[rows];
+        float[] merged = new float[rows * dimension];
+        int stored = 0;
+        int next = 0;
+        for (int row = 0; row < rows; row++) {
+            int offset = row * dimension;
+            if (next == addedIds.length || (stored < ids.length && ids[stored] < addedIds[next])) {
+                mergedIds[row] = ids[stored];
+                matrix.get(stored * dimension, merged, offset, dimension);
+                stored++;
+            } else {
+                mergedIds[row] = addedIds[next];
+                System.arraycopy(added.get(addedIds[next]), 0, merged, offset, dimension);
+                VectorMath.normalize(merged, offset, dimension);
+                next++;
+            }
+        }
+        return new EmbeddingStore(mergedIds, FloatBuffer.wrap(merged), dimension);
+    }
+
+    /** The ids among {@code movieIds} with no vector in this store, in the order given. */
+    public int[] missing(int[] movieIds) {
+        return Arrays.stream(movieIds).filter(id -> !contains(id)).toArray();
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int idAt(int row) {
+        return ids[row];
+    }
+
+    /** True when the vectors live outside the Java heap (memory-mapped snapshot). */
+    public boolean isOffHeap() {
+        return matrix.isDirect();
+    }
+
+    /** Row index of {@code movieId}, or a negative value when absent. */
+    public int rowOf(int movieId) {
+        return Arrays.binarySearch(ids, movieId);
+    }
+
+    public boolean contains(int movieId) {
+        return rowOf(movieId) >= 0;
+    }
+
+    /** Normalized copy of the embedding for {@code movieId}, or null. */
+    public float[] vector(int movieId) {
+        int row = rowOf(movieId);
+        return row < 0 ? null : vectorAt(row);
+    }
+
+    /** Normalized copy of the embedding stored in {@code row}. */
+    public float[] vectorAt(int row) {
+        float[] vector = new float[dimension];
+        matrix.get(row * dimension, vector);
+        return vector;
+    }
+
+    public float score(float[] query, int row) {
+        return score(query, 0, row);
+    }
+
+    float score(float[] query, int queryOffset, int row) {
+        return heap != null
+                ? VectorMath.dot(query, queryOffset, heap, row * dimension, dimension)
+                : VectorMath.dot(query, queryOffset, matrix, row * dimension, dimension);
+    }
+
+    float score(int rowA, int rowB) {
+        return heap != null
+                ? VectorMath.dot(heap, rowA * dimension, heap, rowB * dimension, dimension)
+                : VectorMath.dot(matrix, rowA * dimension, matrix, rowB * dimension, dimension);
+    }
+
+    /**
+     * Exact top-{@code k} by cosine similarity against a normalized query.
+     *
+     * @param excludeId MovieLens id to leave out of the result (usually the query movie)
+     * @return MovieLens ids ordered by descending similarity
+     */
+    public int[] topK(float[] query, int k, int excludeId) {
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("Vectors must be of the same length");
+        }
+        if (k <= 0 || ids.length == 0) {
+            return new int[0];
+        }
+
+        TopK best = new TopK(Math.min(k, ids.length));
+        if (heap != null) {
+            scan(query, heap, 0, 0, ids.length, excludeId, best);
+        } else {
+            // Bulk-copy blocks of mapped rows; indexed gets on a direct buffer are much slower
+            float[] block = new float[Math.min(SCAN_BLOCK_ROWS, ids.length) * dimension];
+            for (int start = 0; start < ids.length; start += SCAN_BLOCK_ROWS) {
+                int rows = Math.min(SCAN_BLOCK_ROWS, ids.length - start);
+                matrix.get(start * dimension, block, 0, rows * dimension);
+                scan(query, block, 0, start, rows, excludeId, best);
+            }
+        }
+        return best.drainDescending();
+    }
+
+    private void scan(float[] query, float[] vectors, int offset, int firstRow, int rows, int excludeId, TopK best) {
+        for (int i = 0; i < rows; i++, offset += dimension) {
+            int id = ids[firstRow + i];
+            if (id != excludeId) {
+                best.offer(id, VectorMath.dot(query, 0, vectors, offset, dimension));
+            }
+        }
+    }
+
+    /**
+     * Exact top-{@code k} among the rows {@code filter} accepts, visiting only those rows.
+     */
+    public int[] topK(float[] query, int k, int excludeId, CatalogFilter filter) {
+        if (filter == null) {
+            return topK(query, k, excludeId);
+        }
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("Vectors must be of the same length");
+        }
+        if (k <= 0 || filter.cardinality() == 0) {
+            return new int[0];
+        }
+
+        TopK best = new TopK(Math.min(k, filter.cardinality()));
+        for (int row = filter.rows.nextSetBit(0); row >= 0 && row < ids.length; row = filter.rows.nextSetBit(row + 1)) {
+            if (ids[row] != excludeId) {
+                best.offer(ids[row], score(query, 0, row));
+            }
+        }
+        return best.drainDescending();
+    }
+
+    @Override
+    public int[] search(float[] query, int k, int excludeId, CatalogFilter filter) {
+        return topK(query, k, excludeId, filter);
+    }
+
+    /** Exact top-{@code k} neighbours of a movie already in the store. */
+    public int[] neighbours(int movieId, int k) {
+        int row = rowOf(movieId);
+        if (row < 0) {
+            return new int[0];
+        }
+        return topK(vectorAt(row), k, movieId);
+    }
+}
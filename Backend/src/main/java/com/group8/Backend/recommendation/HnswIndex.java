@@ -0,0 +1,393 @@
+package com.group8.Backend.recommendation;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hierarchical Navigable Small World graph over the rows of an
+ * {@link EmbeddingStore} (Malkov and Yashunin, 2016).
+ *
+ * Nodes are store rows, similarity is the dot product of normalized
+ * vectors. The graph is built once, single-threaded, and is read-only
+ * afterwards, so searches need no locking.
+ */
+public final class HnswIndex implements SimilarityIndex {
+    static final int MAX_LEVEL = 16;
+    // Filters accepting fewer rows than this fraction are answered by an exact scan of those rows
+    static final double FILTERED_SCAN_FRACTION = 0.1;
+    // Idle visited sets kept for reuse; searches beyond this many at once allocate and drop their own
+    static final int VISITED_POOL_SIZE = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    final EmbeddingStore store;
+    final int m;
+    final int maxLinksLayer0;
+    final int efConstruction;
+    final int efSearch;
+    final double levelMultiplier;
+    final Random random;
+
+    // links[node][layer][0] is the link count, the links follow it
+    final int[][][] links;
+    int entryPoint = -1;
+    int maxLevel = -1;
+
+    // Owned by the index rather than by threads, so they are released with it when a reload replaces it
+    final BlockingQueue<VisitedSet> visited = new ArrayBlockingQueue<>(VISITED_POOL_SIZE);
+
+    HnswIndex(EmbeddingStore store, int m, int efConstruction, int efSearch, long seed) {
+        if (m < 2) {
+            throw new IllegalArgumentException("m must be at least 2");
+        }
+        this.store = store;
+        this.m = m;
+        this.maxLinksLayer0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = Math.max(efSearch, 1);
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = new Random(seed);
+        this.links = new int[store.size()][][];
+    }
+
+    public static HnswIndex build(EmbeddingStore store, int m, int efConstruction, int efSearch) {
+        HnswIndex index = new HnswIndex(store, m, efConstruction, efSearch, 42L);
+        for (int node = 0; node < store.size(); node++) {
+            index.insert(node);
+        }
+        return index;
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public int[] search(float[] query, int k, int excludeId, CatalogFilter filter) {
+        if (query.length != store.dimension) {
+            throw new IllegalArgumentException("Vectors must be of the same length");
+        }
+        if (k <= 0 || entryPoint < 0) {
+            return new int[0];
+        }
+        // A selective filter leaves few eligible nodes along any path; scanning them is cheaper
+        if (filter != null && filter.cardinality() < store.size() * FILTERED_SCAN_FRACTION) {
+            return store.topK(query, k, excludeId, filter);
+        }
+
+        int ep = entryPoint;
+        for (int layer = maxLevel; layer > 0; layer--) {
+            ep = greedyClosest(query, 0, ep, layer);
+        }
+
+        int ef = Math.max(efSearch, k + 1);
+        TopK found = searchLayer(query, 0, ep, ef, 0, filter);
+        int[] rows = found.drainDescending();
+
+        int[] result = new int[Math.min(k, rows.length)];
+        int count = 0;
+        for (int i = 0; i < rows.length && count < result.length; i++) {
+            int id = store.ids[rows[i]];
+            if (id != excludeId) {
+                result[count++] = id;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    void insert(int node) {
+        int level = randomLevel();
+        links[node] = new int[level + 1][];
+        for (int layer = 0; layer <= level; layer++) {
+            links[node][layer] = new int[(layer == 0 ? maxLinksLayer0 : m) + 1];
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        float[] vector = store.vectorAt(node);
+        int ep = entryPoint;
+        for (int layer = maxLevel; layer > level; layer--) {
+            ep = greedyClosest(vector, 0, ep, layer);
+        }
+
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            TopK found = searchLayer(vector, 0, ep, efConstruction, layer, null);
+            int count = found.size();
+            float[] scores = new float[count];
+            int[] candidates = found.drainDescending(scores);
+
+            int[] selected = selectNeighbours(candidates, scores, count, m);
+            int[] own = links[node][layer];
+            own[0] = selected.length;
+            System.arraycopy(selected, 0, own, 1, selected.length);
+
+            for (int neighbour : selected) {
+                connect(neighbour, node, layer);
+            }
+            ep = candidates[0];
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - random.nextDouble();
+        return Math.min((int) (-Math.log(r) * levelMultiplier), MAX_LEVEL);
+    }
+
+    private float similarity(int a, int b) {
+        return store.score(a, b);
+    }
+
+    private float similarity(float[] query, int queryOffset, int node) {
+        return store.score(query, queryOffset, node);
+    }
+
+    private int greedyClosest(float[] query, int queryOffset, int ep, int layer) {
+        float best = similarity(query, queryOffset, ep);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbours = links[ep][layer];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int candidate = neighbours[i];
+                float score = similarity(query, queryOffset, candidate);
+                if (score > best) {
+                    best = score;
+                    ep = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    /**
+     * Beam search of one layer. With a filter, rejected nodes are still expanded so the
+     * search can cross them, but only accepted ones enter the results.
+     */
+    private TopK searchLayer(float[] query, int queryOffset, int ep, int ef, int layer, CatalogFilter filter) {
+        VisitedSet seen = visited.poll();
+        if (seen == null) {
+            seen = new VisitedSet(store.size());
+        }
+        try {
+            return searchLayer(query, queryOffset, ep, ef, layer, filter, seen);
+        } finally {
+            visited.offer(seen);
+        }
+    }
+
+    private TopK searchLayer(float[] query, int queryOffset, int ep, int ef, int layer, CatalogFilter filter,
+                             VisitedSet seen) {
+        seen.reset();
+
+        CandidateQueue candidates = new CandidateQueue(ef * 2);
+        TopK results = new TopK(ef);
+
+        float epScore = similarity(query, queryOffset, ep);
+        seen.mark(ep);
+        candidates.push(ep, epScore);
+        if (filter == null || filter.acceptsRow(ep)) {
+            results.offer(ep, epScore);
+        }
+
+        while (!candidates.isEmpty()) {
+            float score = candidates.peekScore();
+            if (results.isFull() && score < results.threshold()) {
+                break;
+            }
+            int current = candidates.pop();
+
+            int[] neighbours = links[current][layer];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int candidate = neighbours[i];
+                if (!seen.mark(candidate)) {
+                    continue;
+                }
+                float candidateScore = similarity(query, queryOffset, candidate);
+                if (!results.isFull() || candidateScore > results.threshold()) {
+                    candidates.push(candidate, candidateScore);
+                    if (filter == null || filter.acceptsRow(candidate)) {
+                        results.offer(candidate, candidateScore);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour-selection heuristic: keep a candidate only if it is closer to
+     * the base node than to every neighbour already kept, then top up with
+     * the best discarded ones. Expects candidates in descending score order.
+     */
+    private int[] selectNeighbours(int[] candidates, float[] scores, int count, int max) {
+        int[] selected = new int[Math.min(max, count)];
+        int[] skipped = new int[count];
+        int selectedCount = 0;
+        int skippedCount = 0;
+
+        for (int i = 0; i < count && selectedCount < selected.length; i++) {
+            int candidate = candidates[i];
+            boolean keep = true;
+            for (int j = 0; j < selectedCount; j++) {
+                if (similarity(candidate, selected[j]) > scores[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[selectedCount++] = candidate;
+            } else {
+                skipped[skippedCount++] = candidate;
+            }
+        }
+        for (int i = 0; i < skippedCount && selectedCount < selected.length; i++) {
+            selected[selectedCount++] = skipped[i];
+        }
+        return selectedCount == selected.length ? selected : Arrays.copyOf(selected, selectedCount);
+    }
+
+    private void connect(int node, int newNeighbour, int layer) {
+        int[] own = links[node][layer];
+        int capacity = own.length - 1;
+        int count = own[0];
+        if (count < capacity) {
+            own[count + 1] = newNeighbour;
+            own[0] = count + 1;
+            return;
+        }
+
+        // Over capacity: re-run the heuristic over the old links plus the new one
+        int total = count + 1;
+        int[] candidates = new int[total];
+        float[] scores = new float[total];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = own[i + 1];
+            scores[i] = similarity(node, own[i + 1]);
+        }
+        candidates[count] = newNeighbour;
+        scores[count] = similarity(node, newNeighbour);
+        sortDescending(candidates, scores, total);
+
+        int[] selected = selectNeighbours(candidates, scores, total, capacity);
+        own[0] = selected.length;
+        System.arraycopy(selected, 0, own, 1, selected.length);
+    }
+
+    private static void sortDescending(int[] ids, float[] scores, int count) {
+        for (int i = 1; i < count; i++) {
+            int id = ids[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                ids[j + 1] = ids[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            scores[j + 1] = score;
+        }
+    }
+
+    /** Generation-stamped visited marks, reused across searches to avoid clearing. */
+    static final class VisitedSet {
+        final int[] marks;
+        int generation;
+
+        VisitedSet(int size) {
+            this.marks = new int[size];
+        }
+
+        void reset() {
+            if (++generation == 0) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /** @return true if the node had not been visited yet */
+        boolean mark(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+
+    /** Growable max-heap of (node, score), best candidate on top. */
+    static final class CandidateQueue {
+        int[] nodes;
+        float[] scores;
+        int size;
+
+        CandidateQueue(int capacity) {
+            nodes = new int[Math.max(capacity, 4)];
+            scores = new float[nodes.length];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (scores[parent] >= score) {
+                    break;
+                }
+                nodes[index] = nodes[parent];
+                scores[index] = scores[parent];
+                index = parent;
+            }
+            nodes[index] = node;
+            scores[index] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                int node = nodes[size];
+                float score = scores[size];
+                int index = 0;
+                int half = size >>> 1;
+                while (index < half) {
+                    int child = 2 * index + 1;
+                    int right = child + 1;
+                    if (right < size && scores[right] > scores[child]) {
+                        child = right;
+                    }
+                    if (score >= scores[child]) {
+                        break;
+                    }
+                    nodes[index] = nodes[child];
+                    scores[index] = scores[child];
+                    index = child;
+                }
+                nodes[index] = node;
+                scores[index] = score;
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.group8.Backend.recommendation;
+
+import java.util.Arrays;
+
+/**
+ * A {@link SimilarityIndex} over an immutable {@link EmbeddingStore} plus
+ * vectors added after it was built.
+ *
+ * Added vectors are kept in a small copy-on-write segment that every search
+ * scans exactly; base results are re-scored against the store so both sides
+ * merge on the same scale. A model reload embeds every linked title its
+ * snapshot lacks ({@link EmbeddingStore#withVectors}) and rebuilds the base
+ * from the merged store, so the segment only ever holds titles added since.
+ */
+public final class IncrementalIndex implements SimilarityIndex {
+    final EmbeddingStore store;
+    final SimilarityIndex base;
+    final int dimension;
+    volatile Added added = Added.EMPTY;
+
+    public IncrementalIndex(EmbeddingStore store, SimilarityIndex base) {
+        this.store = store;
+        this.base = base;
+        this.dimension = store.dimension();
+    }
+
+    public SimilarityIndex base() {
+        return base;
+    }
+
+    /** Vectors added since the base was built. */
+    public int added() {
+        return added.ids.length;
+    }
+
+    @Override
+    public int size() {
+        return base.size() + added.ids.length;
+    }
+
+    public boolean contains(int movieId) {
+        return store.contains(movieId) || added.rowOf(movieId) >= 0;
+    }
+
+    /** Normalized copy of the vector for {@code movieId} from the store or the added segment, or null. */
+    public float[] vector(int movieId) {
+        float[] stored = store.vector(movieId);
+        if (stored != null) {
+            return stored;
+        }
+        Added current = added;
+        int row = current.rowOf(movieId);
+        return row < 0 ? null : Arrays.copyOfRange(current.vectors, row * dimension, (row + 1) * dimension);
+    }
+
+    /**
+     * Adds a normalized vector. Writers are serialized; readers keep using the
+     * previous segment until the new one is published.
+     *
+     * @return false if the id is already indexed
+     */
+    public synchronized boolean add(int movieId, float[] normalized) {
+        if (normalized.length != dimension) {
+            throw new IllegalArgumentException("Vectors must be of the same length");
+        }
+        if (contains(movieId)) {
+            return false;
+        }
+        Added current = added;
+        int rows = current.ids.length;
+        int[] ids = Arrays.copyOf(current.ids, rows + 1);
+        float[] vectors = Arrays.copyOf(current.vectors, (rows + 1) * dimension);
+        ids[rows] = movieId;
+        System.arraycopy(normalized, 0, vectors, rows * dimension, dimension);
+        added = new Added(ids, vectors);
+        return true;
+    }
+
+    @Override
+    public int[] search(float[] query, int k, int excludeId, CatalogFilter filter) {
+        Added current = added;
+        int[] fromBase = base.search(query, k, excludeId, filter);
+        if (k <= 0 || current.ids.length == 0) {
+            return fromBase;
+        }
+
+        TopK best = new TopK(Math.min(k, fromBase.length + current.ids.length));
+        for (int id : fromBase) {
+            best.offer(id, store.score(query, store.rowOf(id)));
+        }
+        for (int row = 0; row < current.ids.length; row++) {
+            if (current.ids[row] != excludeId && (filter == null || filter.accepts(current.ids[row]))) {
+                best.offer(current.ids[row], VectorMath.dot(query, 0, current.vectors, row * dimension, dimension));
+            }
+        }
+        return best.drainDescending();
+    }
+
+    /** Similarity of two indexed movies, or NaN if either is unknown. */
+    public float similarity(int movieIdA, int movieIdB) {
+        float[] a = vector(movieIdA);
+        float[] b = vector(movieIdB);
+        return a == null || b == null ? Float.NaN : VectorMath.dot(a, b);
+    }
+
+    static final class Added {
+        static final Added EMPTY = new Added(new int[0], new float[0]);
+
+        final int[] ids;
+        final float[] vectors;
+
+        Added(int[] ids, float[] vectors) {
+            this.ids = ids;
+            this.vectors = vectors;
+        }
+
+        // Additions are rare and few, a linear scan beats keeping them sorted
+        int rowOf(int movieId) {
+            for (int row = 0; row < ids.length; row++) {
+                if (ids[row] == movieId) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.group8.Backend.recommendation;
+
+import java.util.Random;
+
+/**
+ * Measures how closely an approximate or quantized index follows exact
+ * float32 search.
+ */
+public final class IndexRecall {
+
+    private IndexRecall() {
+    }
+
+    /**
+     * Mean recall@k of {@code index} over {@code sampleSize} random store rows used as queries,
+     * taking {@link EmbeddingStore#topK} as ground truth.
+     *
+     * @return a value from 0 to 1, or NaN when the store is empty
+     */
+    public static double measure(EmbeddingStore store, SimilarityIndex index, int sampleSize, int k, long seed) {
+        int rows = store.size();
+        if (rows == 0 || sampleSize <= 0 || k <= 0) {
+            return Double.NaN;
+        }
+        Random random = new Random(seed);
+        int samples = Math.min(sampleSize, rows);
+        long found = 0;
+        long expected = 0;
+        for (int i = 0; i < samples; i++) {
+            int row = random.nextInt(rows);
+            float[] query = store.vectorAt(row);
+            int excludeId = store.idAt(row);
+            int[] exact = store.topK(query, k, excludeId);
+            int[] approximate = index.search(query, k, excludeId);
+            IntIntHashMap truth = new IntIntHashMap(exact.length);
+            for (int id : exact) {
+                truth.put(id, 1);
+            }
+            for (int id : approximate) {
+                if (truth.containsKey(id)) {
+                    found++;
+                }
+            }
+            expected += exact.length;
+        }
+        return expected == 0 ? Double.NaN : (double) found / expected;
+    }
+}
@@ -0,0 +1,141 @@
+package com.group8.Backend.recommendation;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing int to int hash map with linear probing.
+ *
+ * Keys and values live in two parallel primitive arrays, so a lookup costs
+ * no boxing and no pointer chasing. {@link #FREE_KEY} marks an empty slot;
+ * that key itself is stored out of line. Not thread-safe for writers; it is
+ * built once and then only read.
+ */
+public final class IntIntHashMap {
+    static final int FREE_KEY = Integer.MIN_VALUE;
+    static final float LOAD_FACTOR = 0.5f;
+
+    int[] keys;
+    int[] values;
+    int mask;
+    int size;
+    boolean hasFreeKey;
+    int freeKeyValue;
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Value for {@code key}, or {@code missing} when absent. */
+    public int get(int key, int missing) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : missing;
+        }
+        int slot = mix(key) & mask;
+        while (true) {
+            int current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == FREE_KEY) {
+                return missing;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        int slot = mix(key) & mask;
+        while (true) {
+            int current = keys[slot];
+            if (current == key) {
+                return true;
+            }
+            if (current == FREE_KEY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public void put(int key, int value) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                size++;
+            }
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return;
+        }
+        int slot = mix(key) & mask;
+        while (true) {
+            int current = keys[slot];
+            if (current == FREE_KEY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > keys.length * LOAD_FACTOR) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+            if (current == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** Stores the mapping only if {@code key} is not present yet. */
+    public void putIfAbsent(int key, int value) {
+        if (!containsKey(key)) {
+            put(key, value);
+        }
+    }
+
+    /** Independent copy, for copy-on-write updates of a map that readers share. */
+    public IntIntHashMap copy() {
+        IntIntHashMap copy = new IntIntHashMap(0);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.mask = mask;
+        copy.size = size;
+        copy.hasFreeKey = hasFreeKey;
+        copy.freeKeyValue = freeKeyValue;
+        return copy;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = hasFreeKey ? 1 : 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    // Murmur3 finalizer; sequential ids would otherwise cluster in linear probing
+    static int mix(int key) {
+        int h = key * 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,250 @@
+package com.group8.Backend.recommendation;
+
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.NDManager;
+import ai.djl.repository.zoo.ZooModel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One loaded model and everything derived from it: the embedding store, the
+ * similarity index over it and the precomputed neighbour table.
+ *
+ * A version is fully built before it is published, and readers take a single
+ * reference to it per request, so a reload can swap the whole set at once and
+ * nobody sees the embeddings of one model with the index of another. The DJL
+ * handles are null when the embeddings came from a snapshot, until a movie the
+ * snapshot lacks needs the model and {@link #attachModel} loads it.
+ */
+public final class ModelVersion implements AutoCloseable {
+    // Nearest neighbours of an added movie whose own lists are checked for it, per list slot
+    static final int AFFECTED_CANDIDATES_FACTOR = 3;
+
+    final int number;
+    final String modelPath;
+    final EmbeddingStore store;
+    final IncrementalIndex index;
+    final NeighbourTable neighbours;
+    final double indexRecall;
+    volatile ZooModel<NDList, NDList> model;
+    volatile PredictorPool predictors;
+    volatile NDManager manager;
+    boolean closed;
+    final long loadedAtMillis = System.currentTimeMillis();
+    // Access level and media type bitsets over this version's store; rebuilt as the catalog changes
+    volatile CatalogAttributes attributes;
+
+    public ModelVersion(int number, String modelPath, EmbeddingStore store, SimilarityIndex index,
+                        double indexRecall, NeighbourTable neighbours, ZooModel<NDList, NDList> model,
+                        PredictorPool predictors, NDManager manager) {
+        this.number = number;
+        this.modelPath = modelPath;
+        this.store = store;
+        this.index = index == null ? null : new IncrementalIndex(store, index);
+        this.indexRecall = indexRecall;
+        this.neighbours = neighbours;
+        this.model = model;
+        this.predictors = predictors;
+        this.manager = manager;
+    }
+
+    public int number() {
+        return number;
+    }
+
+    public String modelPath() {
+        return modelPath;
+    }
+
+    public EmbeddingStore store() {
+        return store;
+    }
+
+    /** The index searched by requests: the base index plus movies added since it was built. */
+    public IncrementalIndex index() {
+        return index;
+    }
+
+    /**
+     * Indexes a movie that was not embedded when this version was built, gives it a neighbour
+     * list and inserts it into the lists of the nearby movies it now outranks.
+     *
+     * @param normalized unit-length embedding of {@code movieId}
+     * @return ids whose neighbour lists changed, starting with {@code movieId}; empty if it was
+     *         already indexed
+     */
+    public synchronized int[] addEmbedding(int movieId, float[] normalized) {
+        if (!index.add(movieId, normalized)) {
+            return new int[0];
+        }
+        int k = neighbours != null ? neighbours.k() : 1;
+        int[] nearby = index.search(normalized, k * AFFECTED_CANDIDATES_FACTOR, movieId);
+        if (neighbours == null) {
+            // No lists to patch; the nearby movies are the ones whose cached results may be stale
+            int[] affected = new int[nearby.length + 1];
+            affected[0] = movieId;
+            System.arraycopy(nearby, 0, affected, 1, nearby.length);
+            return affected;
+        }
+
+        neighbours.put(movieId, nearby);
+        int[] affected = new int[nearby.length + 1];
+        int changed = 0;
+        affected[changed++] = movieId;
+        for (int candidate : nearby) {
+            int[] list = neighbours.get(candidate);
+            if (list == null) {
+                // Not filled yet; the fill searches this index and will see the new movie
+                continue;
+            }
+            int[] updated = insertByScore(candidate, list, movieId, k);
+            if (updated != null) {
+                neighbours.put(candidate, updated);
+                affected[changed++] = candidate;
+            }
+        }
+        return Arrays.copyOf(affected, changed);
+    }
+
+    // The list with movieId inserted in score order, or null if it does not make the cut
+    private int[] insertByScore(int owner, int[] list, int movieId, int k) {
+        float score = index.similarity(owner, movieId);
+        int position = list.length;
+        while (position > 0 && index.similarity(owner, list[position - 1]) < score) {
+            position--;
+        }
+        if (position >= k) {
+            return null;
+        }
+        int[] updated = new int[Math.min(k, list.length + 1)];
+        System.arraycopy(list, 0, updated, 0, position);
+        updated[position] = movieId;
+        System.arraycopy(list, position, updated, position + 1, updated.length - position - 1);
+        return updated;
+    }
+
+    /** Catalog bitsets for filtered search, or null until they are first loaded. */
+    public CatalogAttributes attributes() {
+        return attributes;
+    }
+
+    public void attributes(CatalogAttributes attributes) {
+        if (attributes.store() != store) {
+            throw new IllegalArgumentException("Catalog attributes were built for another embedding store");
+        }
+        this.attributes = attributes;
+    }
+
+    /** Recall@k of the index against exact search measured at build time, or NaN. */
+    public double indexRecall() {
+        return indexRecall;
+    }
+
+    /** Neighbour lists for the catalog, or null when precompute is disabled. */
+    public NeighbourTable neighbours() {
+        return neighbours;
+    }
+
+    /** Predictors for on-demand inference, or null when served from a snapshot. */
+    public PredictorPool predictors() {
+        return predictors;
+    }
+
+    public NDManager manager() {
+        return manager;
+    }
+
+    /**
+     * Attaches a model loaded after this version was built from a snapshot.
+     *
+     * @return false if a model is attached already or the version is closed; the caller then
+     *         closes the handles it passed
+     */
+    public synchronized boolean attachModel(ZooModel<NDList, NDList> model, PredictorPool predictors,
+                                            NDManager manager) {
+        if (closed || this.predictors != null) {
+            return false;
+        }
+        this.model = model;
+        this.manager = manager;
+        this.predictors = predictors;
+        return true;
+    }
+
+    /**
+     * Bytes of native memory held by arrays still attached to this version's managers,
+     * including the model's own. Per-call arrays are released on return, so under steady
+     * load this stays flat; growth means something is not closing its manager.
+     */
+    public long nativeBytes() {
+        long bytes = 0;
+        for (NDArray array : managedArrays()) {
+            try {
+                bytes += array.getShape().size() * array.getDataType().getNumOfBytes();
+            } catch (RuntimeException e) {
+                // Closed between listing and reading; it no longer holds memory
+            }
+        }
+        return bytes;
+    }
+
+    /** Arrays still attached to this version's managers. */
+    public int nativeArrays() {
+        return managedArrays().size();
+    }
+
+    private List<NDArray> managedArrays() {
+        List<NDArray> arrays = new ArrayList<>();
+        if (manager != null) {
+            arrays.addAll(manager.getManagedArrays());
+        }
+        if (model != null) {
+            arrays.addAll(model.getNDManager().getManagedArrays());
+        }
+        return arrays;
+    }
+
+    public long loadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    /**
+     * Releases the native model once in-flight inferences have returned their
+     * predictors.
+     *
+     * @return false if inferences were still running after {@code drainTimeout};
+     *         the model is then left for the process to reclaim rather than freed
+     *         under a running call, and each late predictor closes as it returns
+     */
+    public boolean close(Duration drainTimeout) throws InterruptedException {
+        PredictorPool pool;
+        synchronized (this) {
+            // No model can be attached from here on
+            closed = true;
+            pool = predictors;
+        }
+        if (pool != null && !pool.close(drainTimeout)) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (predictors != null) {
+            predictors.close();
+        }
+        if (model != null) {
+            model.close();
+        }
+        if (manager != null) {
+            manager.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.group8.Backend.recommendation;
+
+/**
+ * In-memory copy of {@code movielens_links} in both directions.
+ *
+ * Built once from a full table read and then swapped in as a whole, so
+ * readers never see a partly loaded table. Media ids in this application
+ * are TMDB ids.
+ */
+public final class MovieLensLinks {
+    public static final int NO_ID = -1;
+
+    final IntIntHashMap tmdbToMovieLens;
+    final IntIntHashMap movieLensToTmdb;
+
+    private MovieLensLinks(IntIntHashMap tmdbToMovieLens, IntIntHashMap movieLensToTmdb) {
+        this.tmdbToMovieLens = tmdbToMovieLens;
+        this.movieLensToTmdb = movieLensToTmdb;
+    }
+
+    public static MovieLensLinks empty() {
+        return builder(0).build();
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    /** MovieLens id for a media (TMDB) id, or {@link #NO_ID}. */
+    public int movieLensIdForMedia(int mediaId) {
+        return tmdbToMovieLens.get(mediaId, NO_ID);
+    }
+
+    /** Media (TMDB) id for a MovieLens id, or {@link #NO_ID}. */
+    public int mediaIdForMovieLensId(int movieLensId) {
+        return movieLensToTmdb.get(movieLensId, NO_ID);
+    }
+
+    public int size() {
+        return movieLensToTmdb.size();
+    }
+
+    /**
+     * Copy with one more link, following the same first-mapping-wins rule as the builder.
+     * Returns this instance when both ids are already mapped.
+     */
+    public MovieLensLinks withLink(int movieLensId, int tmdbId) {
+        if (movieLensToTmdb.containsKey(movieLensId) && tmdbToMovieLens.containsKey(tmdbId)) {
+            return this;
+        }
+        IntIntHashMap tmdbCopy = tmdbToMovieLens.copy();
+        IntIntHashMap movieLensCopy = movieLensToTmdb.copy();
+        movieLensCopy.putIfAbsent(movieLensId, tmdbId);
+        tmdbCopy.putIfAbsent(tmdbId, movieLensId);
+        return new MovieLensLinks(tmdbCopy, movieLensCopy);
+    }
+
+    public static final class Builder {
+        final IntIntHashMap tmdbToMovieLens;
+        final IntIntHashMap movieLensToTmdb;
+
+        Builder(int expectedSize) {
+            tmdbToMovieLens = new IntIntHashMap(expectedSize);
+            movieLensToTmdb = new IntIntHashMap(expectedSize);
+        }
+
+        /** The first mapping seen for either id wins, so feed rows in a stable order. */
+        public Builder link(int movieLensId, int tmdbId) {
+            movieLensToTmdb.putIfAbsent(movieLensId, tmdbId);
+            tmdbToMovieLens.putIfAbsent(tmdbId, movieLensId);
+            return this;
+        }
+
+        public MovieLensLinks build() {
+            return new MovieLensLinks(tmdbToMovieLens, movieLensToTmdb);
+        }
+    }
+}
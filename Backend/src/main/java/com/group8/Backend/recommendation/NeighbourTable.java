@@ -0,0 +1,143 @@
+package com.group8.Backend.recommendation;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Precomputed top-K neighbour lists for every row of an {@link EmbeddingStore}.
+ *
+ * Lists are stored flat, {@code k} MovieLens ids per row. A row's count is
+ * published through an {@link AtomicIntegerArray} after its ids are written,
+ * so readers can use finished rows while the rest are still being filled.
+ * A count of -1 means the row is not computed yet. Lists changed after the
+ * fill, or for movies added to the index later, are kept as whole-list
+ * overrides so a reader never sees a list half rewritten.
+ */
+public final class NeighbourTable {
+    // Rows handled by one fork-join leaf task
+    static final int LEAF_ROWS = 64;
+
+    final EmbeddingStore store;
+    final int k;
+    final int[] neighbours;
+    final AtomicIntegerArray counts;
+    final AtomicInteger completed = new AtomicInteger();
+    final ConcurrentHashMap<Integer, int[]> overrides = new ConcurrentHashMap<>();
+    volatile long startedNanos;
+    volatile long finishedNanos;
+
+    public NeighbourTable(EmbeddingStore store, int k) {
+        this.store = store;
+        this.k = k;
+        this.neighbours = new int[store.size() * k];
+        this.counts = new AtomicIntegerArray(store.size());
+        for (int row = 0; row < store.size(); row++) {
+            counts.set(row, -1);
+        }
+    }
+
+    /**
+     * Neighbours of {@code movieId}, best first, or null if the movie is not
+     * in the store or its row has not been computed yet.
+     */
+    public int[] get(int movieId) {
+        int[] override = overrides.get(movieId);
+        if (override != null) {
+            return override.clone();
+        }
+        int row = store.rowOf(movieId);
+        if (row < 0) {
+            return null;
+        }
+        int count = counts.get(row);
+        if (count < 0) {
+            return null;
+        }
+        return Arrays.copyOfRange(neighbours, row * k, row * k + count);
+    }
+
+    /** Replaces the list of {@code movieId}, which need not be in the store. */
+    public void put(int movieId, int[] neighbourIds) {
+        overrides.put(movieId, Arrays.copyOf(neighbourIds, Math.min(k, neighbourIds.length)));
+    }
+
+    public int k() {
+        return k;
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public int completed() {
+        return completed.get();
+    }
+
+    public boolean isComplete() {
+        return completed.get() == store.size();
+    }
+
+    /** Fraction of rows computed, from 0 to 1. */
+    public double progress() {
+        return store.size() == 0 ? 1.0 : (double) completed.get() / store.size();
+    }
+
+    /** Time spent filling so far, or in total once complete; 0 before the fill starts. */
+    public long elapsedMillis() {
+        long started = startedNanos;
+        if (started == 0) {
+            return 0;
+        }
+        long finished = finishedNanos;
+        return ((finished != 0 ? finished : System.nanoTime()) - started) / 1_000_000;
+    }
+
+    /** Fills every row on {@code pool}, searching with {@code index}; returns when done. */
+    public void fill(ForkJoinPool pool, SimilarityIndex index) {
+        startedNanos = System.nanoTime();
+        if (store.size() == 0) {
+            finishedNanos = startedNanos;
+            return;
+        }
+        pool.invoke(new FillTask(index, 0, store.size()));
+    }
+
+    void fillRow(SimilarityIndex index, int row) {
+        int[] found = index.search(store.vectorAt(row), k, store.idAt(row));
+        System.arraycopy(found, 0, neighbours, row * k, found.length);
+        counts.set(row, found.length);
+        if (completed.incrementAndGet() == store.size()) {
+            finishedNanos = System.nanoTime();
+        }
+    }
+
+    final class FillTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final SimilarityIndex index;
+        final int from;
+        final int to;
+
+        FillTask(SimilarityIndex index, int from, int to) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_ROWS) {
+                for (int row = from; row < to; row++) {
+                    fillRow(index, row);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FillTask(index, from, middle), new FillTask(index, middle, to));
+        }
+    }
+}
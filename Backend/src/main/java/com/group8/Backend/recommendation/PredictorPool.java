@@ -0,0 +1,149 @@
+package com.group8.Backend.recommendation;
+
+import ai.djl.inference.Predictor;
+import ai.djl.ndarray.NDList;
+import ai.djl.repository.zoo.ZooModel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of DJL predictors shared by request threads.
+ *
+ * A predictor is not thread-safe, so each caller checks one out for the
+ * duration of an inference and hands it back by closing the {@link Lease}.
+ * Callers wait up to {@code checkoutTimeout} for a free predictor; the number
+ * waiting at any moment is the pool's queue depth. Closing the pool stops
+ * lending at once and closes each predictor once it is idle, so none is
+ * closed under a running inference.
+ */
+public final class PredictorPool implements AutoCloseable {
+    final List<Predictor<NDList, NDList>> predictors;
+    final BlockingQueue<Predictor<NDList, NDList>> idle;
+    final Duration checkoutTimeout;
+    final AtomicInteger waiting = new AtomicInteger();
+    // Counts down as each predictor is closed
+    final CountDownLatch retired;
+    volatile boolean closed;
+
+    public PredictorPool(ZooModel<NDList, NDList> model, int size, Duration checkoutTimeout) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.predictors = new ArrayList<>(size);
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.checkoutTimeout = checkoutTimeout;
+        this.retired = new CountDownLatch(size);
+        for (int i = 0; i < size; i++) {
+            Predictor<NDList, NDList> predictor = model.newPredictor();
+            predictors.add(predictor);
+            idle.add(predictor);
+        }
+    }
+
+    public int size() {
+        return predictors.size();
+    }
+
+    /** Predictors not checked out right now. */
+    public int available() {
+        return idle.size();
+    }
+
+    /** Threads currently waiting for a predictor. */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    /**
+     * Checks out a predictor, waiting up to the configured timeout.
+     *
+     * @throws TimeoutException if every predictor stayed busy for the whole timeout
+     * @throws IllegalStateException if the pool is closed
+     */
+    public Lease borrow() throws InterruptedException, TimeoutException {
+        return borrow(checkoutTimeout);
+    }
+
+    public Lease borrow(Duration timeout) throws InterruptedException, TimeoutException {
+        if (closed) {
+            throw new IllegalStateException("Predictor pool is closed");
+        }
+        // Once closed the queue is only ever drained, so a caller past the check cannot get a closed predictor
+        Predictor<NDList, NDList> predictor = idle.poll();
+        if (predictor == null) {
+            waiting.incrementAndGet();
+            try {
+                predictor = idle.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (predictor == null) {
+                throw new TimeoutException("No predictor available within " + timeout.toMillis() + " ms");
+            }
+        }
+        return new Lease(predictor);
+    }
+
+    /**
+     * Closes the pool and waits for checked-out predictors to come back and be closed, so
+     * the model can be released without pulling a native handle out from under an inference.
+     *
+     * @return false if some predictor was still checked out after {@code timeout}; it is
+     *         closed whenever it is returned
+     */
+    public boolean close(Duration timeout) throws InterruptedException {
+        close();
+        return retired.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /** Stops lending and closes the idle predictors; the others are closed as they are returned. */
+    @Override
+    public void close() {
+        closed = true;
+        retireIdle();
+    }
+
+    // Both close and a returning lease call this after closed is set, so every predictor is closed exactly once
+    private void retireIdle() {
+        Predictor<NDList, NDList> predictor;
+        while ((predictor = idle.poll()) != null) {
+            predictor.close();
+            retired.countDown();
+        }
+    }
+
+    /** A checked-out predictor; closing the lease returns it to the pool. */
+    public final class Lease implements AutoCloseable {
+        Predictor<NDList, NDList> predictor;
+
+        Lease(Predictor<NDList, NDList> predictor) {
+            this.predictor = predictor;
+        }
+
+        public Predictor<NDList, NDList> predictor() {
+            if (predictor == null) {
+                throw new IllegalStateException("Lease already returned");
+            }
+            return predictor;
+        }
+
+        @Override
+        public void close() {
+            if (predictor != null) {
+                idle.offer(predictor);
+                predictor = null;
+                if (closed) {
+                    retireIdle();
+                }
+            }
+        }
+    }
+}
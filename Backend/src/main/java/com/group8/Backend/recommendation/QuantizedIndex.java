@@ -0,0 +1,230 @@
+package com.group8.Backend.recommendation;
+
+/**
+ * Exact-scan index over a compact copy of an {@link EmbeddingStore}.
+ *
+ * Each row is stored either as int8 codes with one scale per vector, or as
+ * IEEE float16. A query scans the compact rows to pick
+ * {@code k * rerankFactor} candidates, then re-scores only those against
+ * the float32 store, so the final ranking uses exact similarities. With a
+ * memory-mapped store the float32 vectors stay off the heap and only the
+ * candidates' pages are touched.
+ */
+public final class QuantizedIndex implements SimilarityIndex {
+    public enum Encoding { INT8, FLOAT16 }
+
+    // float16 bit pattern to float, so decoding is one array load
+    static final float[] HALF_TO_FLOAT = new float[1 << 16];
+
+    static {
+        for (int bits = 0; bits < HALF_TO_FLOAT.length; bits++) {
+            HALF_TO_FLOAT[bits] = halfToFloat((short) bits);
+        }
+    }
+
+    final EmbeddingStore store;
+    final Encoding encoding;
+    final int dimension;
+    final int rerankFactor;
+    final byte[] codes;
+    final float[] scales;
+    final short[] halves;
+
+    QuantizedIndex(EmbeddingStore store, Encoding encoding, int rerankFactor,
+                   byte[] codes, float[] scales, short[] halves) {
+        this.store = store;
+        this.encoding = encoding;
+        this.dimension = store.dimension();
+        this.rerankFactor = rerankFactor;
+        this.codes = codes;
+        this.scales = scales;
+        this.halves = halves;
+    }
+
+    /**
+     * Encodes every row of {@code store}.
+     *
+     * @param rerankFactor candidates re-scored in float32 per result; 0 ranks by the compact scores only
+     */
+    public static QuantizedIndex build(EmbeddingStore store, Encoding encoding, int rerankFactor) {
+        int rows = store.size();
+        int dimension = store.dimension();
+        if (encoding == Encoding.FLOAT16) {
+            short[] halves = new short[rows * dimension];
+            for (int row = 0; row < rows; row++) {
+                float[] vector = store.vectorAt(row);
+                for (int i = 0; i < dimension; i++) {
+                    halves[row * dimension + i] = floatToHalf(vector[i]);
+                }
+            }
+            return new QuantizedIndex(store, encoding, rerankFactor, null, null, halves);
+        }
+
+        byte[] codes = new byte[rows * dimension];
+        float[] scales = new float[rows];
+        for (int row = 0; row < rows; row++) {
+            scales[row] = quantize(store.vectorAt(row), codes, row * dimension);
+        }
+        return new QuantizedIndex(store, encoding, rerankFactor, codes, scales, null);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    /** Heap bytes held by the compact rows. */
+    public long bytes() {
+        return encoding == Encoding.FLOAT16
+                ? 2L * halves.length
+                : codes.length + 4L * scales.length;
+    }
+
+    @Override
+    public int[] search(float[] query, int k, int excludeId, CatalogFilter filter) {
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("Vectors must be of the same length");
+        }
+        int rows = filter == null ? store.size() : filter.cardinality();
+        if (k <= 0 || rows == 0) {
+            return new int[0];
+        }
+
+        int candidates = Math.min(rows, rerankFactor > 0 ? k * rerankFactor : k);
+        TopK coarse = new TopK(candidates);
+        if (encoding == Encoding.FLOAT16) {
+            scanHalves(query, excludeId, filter, coarse);
+        } else {
+            scanCodes(query, excludeId, filter, coarse);
+        }
+        int[] candidateRows = coarse.drainDescending();
+
+        int limit = Math.min(k, candidateRows.length);
+        if (limit == 0) {
+            return new int[0];
+        }
+        if (rerankFactor <= 0) {
+            int[] ids = new int[limit];
+            for (int i = 0; i < limit; i++) {
+                ids[i] = store.idAt(candidateRows[i]);
+            }
+            return ids;
+        }
+        TopK best = new TopK(limit);
+        for (int row : candidateRows) {
+            best.offer(store.idAt(row), store.score(query, row));
+        }
+        return best.drainDescending();
+    }
+
+    // Offers store rows, not ids, so the re-rank can find the float32 vectors directly
+    // Rows the filter rejects are skipped before their codes are touched
+    private void scanCodes(float[] query, int excludeId, CatalogFilter filter, TopK coarse) {
+        byte[] queryCodes = new byte[dimension];
+        float queryScale = quantize(query, queryCodes, 0);
+        for (int row = CatalogFilter.nextRow(filter, 0, scales.length); row >= 0;
+             row = CatalogFilter.nextRow(filter, row + 1, scales.length)) {
+            if (store.idAt(row) != excludeId) {
+                int dot = VectorMath.dot(queryCodes, 0, codes, row * dimension, dimension);
+                coarse.offer(row, dot * scales[row] * queryScale);
+            }
+        }
+    }
+
+    private void scanHalves(float[] query, int excludeId, CatalogFilter filter, TopK coarse) {
+        int rows = store.size();
+        for (int row = CatalogFilter.nextRow(filter, 0, rows); row >= 0; row = CatalogFilter.nextRow(filter, row + 1, rows)) {
+            if (store.idAt(row) == excludeId) {
+                continue;
+            }
+            int offset = row * dimension;
+            float s0 = 0f, s1 = 0f;
+            int i = 0;
+            for (; i + 1 < dimension; i += 2) {
+                s0 += query[i] * HALF_TO_FLOAT[halves[offset + i] & 0xFFFF];
+                s1 += query[i + 1] * HALF_TO_FLOAT[halves[offset + i + 1] & 0xFFFF];
+            }
+            if (i < dimension) {
+                s0 += query[i] * HALF_TO_FLOAT[halves[offset + i] & 0xFFFF];
+            }
+            coarse.offer(row, s0 + s1);
+        }
+    }
+
+    // Symmetric int8 quantization of one vector; returns the scale that maps codes back to floats
+    static float quantize(float[] vector, byte[] out, int offset) {
+        float max = 0f;
+        for (float value : vector) {
+            max = Math.max(max, Math.abs(value));
+        }
+        if (max == 0f) {
+            return 0f;
+        }
+        float inv = 127f / max;
+        for (int i = 0; i < vector.length; i++) {
+            out[offset + i] = (byte) Math.round(vector[i] * inv);
+        }
+        return max / 127f;
+    }
+
+    // Round-to-nearest-even float32 to float16, saturating to infinity
+    static short floatToHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+        int mantissa = bits & 0x7FFFFF;
+
+        if (exponent >= 0x1F) {
+            boolean nan = ((bits >>> 23) & 0xFF) == 0xFF && mantissa != 0;
+            return (short) (sign | 0x7C00 | (nan ? 0x200 : 0));
+        }
+        if (exponent <= 0) {
+            if (exponent < -10) {
+                return (short) sign;
+            }
+            // Subnormal half: shift the implicit leading bit into the mantissa
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            int rest = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (rest > halfway || (rest == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        int half = (exponent << 10) | (mantissa >> 13);
+        int rest = mantissa & 0x1FFF;
+        if (rest > 0x1000 || (rest == 0x1000 && (half & 1) != 0)) {
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    static float halfToFloat(short half) {
+        int bits = half & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+
+        if (exponent == 0) {
+            if (mantissa == 0) {
+                return Float.intBitsToFloat(sign);
+            }
+            // Subnormal: normalize into a float32 exponent
+            exponent = 1;
+            while ((mantissa & 0x400) == 0) {
+                mantissa <<= 1;
+                exponent--;
+            }
+            mantissa &= 0x3FF;
+        } else if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+}
@@ -0,0 +1,28 @@
+package com.group8.Backend.recommendation;
+
+/**
+ * Nearest-neighbour search over normalized movie embeddings.
+ */
+public interface SimilarityIndex {
+
+    /**
+     * @param query     L2-normalized query vector
+     * @param k         number of neighbours wanted
+     * @param excludeId MovieLens id to leave out of the result
+     * @return MovieLens ids ordered by descending cosine similarity
+     */
+    default int[] search(float[] query, int k, int excludeId) {
+        return search(query, k, excludeId, null);
+    }
+
+    /**
+     * Like {@link #search(float[], int, int)}, returning only movies {@code filter} accepts.
+     * Ineligible candidates are skipped during the search, so up to {@code k} eligible ones
+     * come back.
+     *
+     * @param filter built for the store this index searches, or null for no filter
+     */
+    int[] search(float[] query, int k, int excludeId, CatalogFilter filter);
+
+    int size();
+}
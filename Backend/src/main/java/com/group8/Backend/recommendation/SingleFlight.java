@@ -0,0 +1,57 @@
+package com.group8.Backend.recommendation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Per-key request coalescing.
+ *
+ * The first caller for a key runs the loader; callers that arrive while it is
+ * running wait for the same result instead of computing it again. Nothing is
+ * kept once the loader finishes, so this sits in front of a cache rather than
+ * replacing it.
+ */
+public final class SingleFlight<K, V> {
+    final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    final LongAdder coalesced = new LongAdder();
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /** Calls that waited on another caller's load instead of running their own. */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /** Keys being loaded right now. */
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
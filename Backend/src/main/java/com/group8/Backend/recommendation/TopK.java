@@ -0,0 +1,120 @@
+package com.group8.Backend.recommendation;
+
+/**
+ * Bounded min-heap of (id, score) pairs kept in primitive arrays.
+ *
+ * The root always holds the weakest of the current best {@code k}, so a
+ * candidate is rejected with a single comparison once the heap is full.
+ */
+public final class TopK {
+    final int[] ids;
+    final float[] scores;
+    int size;
+
+    public TopK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.ids = new int[k];
+        this.scores = new float[k];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == ids.length;
+    }
+
+    /** Score a candidate must beat to enter a full heap. */
+    public float threshold() {
+        return isFull() ? scores[0] : Float.NEGATIVE_INFINITY;
+    }
+
+    public boolean offer(int id, float score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        ids[0] = id;
+        scores[0] = score;
+        siftDown(0);
+        return true;
+    }
+
+    /** Ids ordered by descending score. Empties the heap. */
+    public int[] drainDescending() {
+        int[] out = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            out[i] = ids[0];
+            pollRoot();
+        }
+        return out;
+    }
+
+    /**
+     * Like {@link #drainDescending()} but also copies the matching scores
+     * into {@code scoresOut}, which must hold at least {@link #size()} entries.
+     */
+    public int[] drainDescending(float[] scoresOut) {
+        int[] out = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            out[i] = ids[0];
+            scoresOut[i] = scores[0];
+            pollRoot();
+        }
+        return out;
+    }
+
+    private void pollRoot() {
+        size--;
+        if (size > 0) {
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int index) {
+        int id = ids[index];
+        float score = scores[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= score) {
+                break;
+            }
+            ids[index] = ids[parent];
+            scores[index] = scores[parent];
+            index = parent;
+        }
+        ids[index] = id;
+        scores[index] = score;
+    }
+
+    private void siftDown(int index) {
+        int id = ids[index];
+        float score = scores[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && scores[right] < scores[child]) {
+                child = right;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            ids[index] = ids[child];
+            scores[index] = scores[child];
+            index = child;
+        }
+        ids[index] = id;
+        scores[index] = score;
+    }
+}
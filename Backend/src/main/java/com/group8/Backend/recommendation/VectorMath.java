@@ -0,0 +1,109 @@
+package com.group8.Backend.recommendation;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Scalar kernels used by the embedding store.
+ *
+ * The dot product keeps four independent float accumulators so the JIT can
+ * pipeline (and on most x86/ARM targets vectorize) the loop; a single
+ * double accumulator serializes every iteration on the previous one.
+ */
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int upper = length & ~3;
+        for (; i < upper; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static float dot(float[] a, int aOffset, FloatBuffer b, int bOffset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int upper = length & ~3;
+        for (; i < upper; i += 4) {
+            s0 += a[aOffset + i] * b.get(bOffset + i);
+            s1 += a[aOffset + i + 1] * b.get(bOffset + i + 1);
+            s2 += a[aOffset + i + 2] * b.get(bOffset + i + 2);
+            s3 += a[aOffset + i + 3] * b.get(bOffset + i + 3);
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b.get(bOffset + i);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static float dot(FloatBuffer a, int aOffset, FloatBuffer b, int bOffset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int upper = length & ~3;
+        for (; i < upper; i += 4) {
+            s0 += a.get(aOffset + i) * b.get(bOffset + i);
+            s1 += a.get(aOffset + i + 1) * b.get(bOffset + i + 1);
+            s2 += a.get(aOffset + i + 2) * b.get(bOffset + i + 2);
+            s3 += a.get(aOffset + i + 3) * b.get(bOffset + i + 3);
+        }
+        for (; i < length; i++) {
+            s0 += a.get(aOffset + i) * b.get(bOffset + i);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /** Integer dot product of int8 codes; exact, with no rounding until the caller rescales. */
+    public static int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        int upper = length & ~3;
+        for (; i < upper; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static float dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vectors must be of the same length");
+        }
+        return dot(a, 0, b, 0, a.length);
+    }
+
+    /**
+     * Scales {@code vector} in place to unit length. Zero vectors are left
+     * untouched so that they score 0 against everything, like the old cosine.
+     */
+    public static void normalize(float[] vector, int offset, int length) {
+        float norm = (float) Math.sqrt(dot(vector, offset, vector, offset, length));
+        if (norm == 0f) {
+            return;
+        }
+        float inv = 1f / norm;
+        for (int i = 0; i < length; i++) {
+            vector[offset + i] *= inv;
+        }
+    }
+
+    public static float[] normalizedCopy(float[] vector) {
+        float[] copy = vector.clone();
+        normalize(copy, 0, copy.length);
+        return copy;
+    }
+}
@@ -0,0 +1,95 @@
+package com.group8.Backend.repository;
+
+import com.group8.Backend.entity.UserRecommendation;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Precomputed recommendations in {@code user_recommendations}, read per user and replaced a page
+ * of users at a time with JDBC batches. Plain JDBC rather than JPA, so a page of tens of thousands
+ * of rows is written without an entity per row going through the persistence context.
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class UserRecommendationStore {
+    // Statements per JDBC batch; MySQL only sends them as one multi-row insert with rewriteBatchedStatements=true
+    static final int BATCH_SIZE = 1000;
+
+    JdbcTemplate jdbcTemplate;
+
+    /** The user's stored rows by position; empty when none are stored. */
+    public List<UserRecommendation> findByUserId(int userId) {
+        return jdbcTemplate.query(
+                "SELECT UserID, Position, MediaID, Mode, AccessMask, ComputedAt FROM user_recommendations "
+                        + "WHERE UserID = ? ORDER BY Position",
+                (rs, rowNum) -> UserRecommendation.builder()
+                        .userId(rs.getInt(1))
+                        .position(rs.getInt(2))
+                        .mediaId(rs.getInt(3))
+                        .mode(rs.getString(4))
+                        .accessMask(rs.getInt(5))
+                        .computedAt(rs.getTimestamp(6).toLocalDateTime())
+                        .build(),
+                userId);
+    }
+
+    /**
+     * Deletes every stored row of {@code userIds} and inserts {@code rows} in their place, in one
+     * transaction so a reader sees either a user's old list or the new one. Rows of users whose
+     * favorites changed at or after {@code computedAt} are dropped: they were scored from the old
+     * favorites, and {@link #invalidate} has already deleted the user's list.
+     */
+    @Transactional
+    public void replace(List<Integer> userIds, List<UserRecommendation> rows, LocalDateTime computedAt) {
+        jdbcTemplate.batchUpdate("DELETE FROM user_recommendations WHERE UserID = ?", userIds, BATCH_SIZE,
+                (ps, userId) -> ps.setInt(1, userId));
+        if (!userIds.isEmpty()) {
+            Set<Integer> changed = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT UserID FROM Users WHERE FavoritesChangedAt >= ? AND UserID IN ("
+                            + String.join(", ", Collections.nCopies(userIds.size(), "?")) + ")",
+                    Integer.class,
+                    Stream.concat(Stream.of(Timestamp.valueOf(computedAt)), userIds.stream()).toArray()));
+            if (!changed.isEmpty()) {
+                rows = rows.stream().filter(row -> !changed.contains(row.getUserId())).toList();
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO user_recommendations (UserID, Position, MediaID, Mode, AccessMask, ComputedAt) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)",
+                rows, BATCH_SIZE,
+                (ps, row) -> {
+                    ps.setInt(1, row.getUserId());
+                    ps.setInt(2, row.getPosition());
+                    ps.setInt(3, row.getMediaId());
+                    ps.setString(4, row.getMode());
+                    ps.setInt(5, row.getAccessMask());
+                    ps.setTimestamp(6, Timestamp.valueOf(row.getComputedAt()));
+                });
+    }
+
+    /**
+     * Records that the user's favorites changed at {@code changedAt} and deletes their stored list,
+     * so neither it nor one a running batch scored before the change is served. Runs in its own
+     * transaction: it is called after the favorite's transaction commits, which it must not join.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void invalidate(int userId, LocalDateTime changedAt) {
+        jdbcTemplate.update("UPDATE Users SET FavoritesChangedAt = ? WHERE UserID = ?",
+                Timestamp.valueOf(changedAt), userId);
+        jdbcTemplate.update("DELETE FROM user_recommendations WHERE UserID = ?", userId);
+    }
+}
@@ -136,7 +136,8 @@ public class AuthenticationService {
     }
 
 
-    private String generateToken(User user) throws KeyLengthException {
+    // package-private for the JMH benchmarks
+    String generateToken(User user) throws KeyLengthException {
         JWSHeader header = new JWSHeader(JWSAlgorithm.HS512);
         JWTClaimsSet jwtClaimsSet = new JWTClaimsSet.Builder()
                 .subject(user.getUsername())
@@ -162,7 +163,7 @@ public class AuthenticationService {
 
     }
 
-    private String buildScope(User user) {
+    String buildScope(User user) {
         StringJoiner stringJoiner = new StringJoiner(" ");
         if (!CollectionUtils.isEmpty(user.getRoles())) {
             user.getRoles().forEach(role -> {
@@ -3,6 +3,7 @@ package com.group8.Backend.service;
 import com.group8.Backend.dto.response.MediaResponse;
 import com.group8.Backend.entity.Favorite;
 import com.group8.Backend.entity.Media;
+import com.group8.Backend.entity.MediaType;
 import com.group8.Backend.entity.User;
 import com.group8.Backend.exception.AppException;
 import com.group8.Backend.exception.ErrorCode;
@@ -17,11 +18,14 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -54,6 +58,12 @@ public class FavoriteService {
         // Check if already favorited
         boolean exists = favoriteRepository.existsByUserIdAndMediaId(userId, mediaId);
 
+        // Cached recommendations were scored from the old favorites, and the co-favorite counts change.
+        // The other favorites are only read for the co-favorite index, so skip the query without one
+        List<Integer> others = recommendationService.tracksCoFavorites()
+                ? favoriteRepository.findMediaIdsByUserId(userId) : List.of();
+        notifyRecommendationsAfterCommit(userId, mediaId, !exists, others);
+
         if (exists) {
             // Remove from favorites
             favoriteRepository.deleteByUserIdAndMediaId(userId, mediaId);
@@ -70,6 +80,20 @@ public class FavoriteService {
         }
     }
 
+    // Evicting before commit would let a concurrent read re-cache recommendations from the old favorites
+    private void notifyRecommendationsAfterCommit(int userId, int mediaId, boolean added, List<Integer> others) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recommendationService.onFavoriteChanged(userId, mediaId, added, others);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recommendationService.onFavoriteChanged(userId, mediaId, added, others);
+            }
+        });
+    }
+
     public List<MediaResponse> getUserFavorites() {
         int userId = getCurrentUserId();
         List<Favorite> favorites = favoriteRepository.findByUserId(userId);
@@ -90,8 +114,9 @@ public class FavoriteService {
         return favoriteRepository.existsByUserIdAndMediaId(userId, mediaId);
     }
 
-    public List<MediaResponse> getRecommendations() {
+    // The user is resolved here, on the request thread that holds the security context
+    public CompletableFuture<List<MediaResponse>> getRecommendations(String mode, MediaType mediaType) {
         int userId = getCurrentUserId();
-        return recommendationService.getRecommendationsForUser(userId);
+        return recommendationService.getRecommendationsForUserAsync(userId, mode, mediaType);
     }
 }
\ No newline at end of file
@@ -35,6 +35,7 @@ public class MediaService {
     ActorRepository actorRepository;
     DirectorRepository directorRepository;
     MediaMapper mediaMapper;
+    RecommendationService recommendationService;
 
     @PreAuthorize("hasRole('ADMIN')")
     public MediaResponse createMedia(MediaCreationRequest request) {
@@ -68,6 +69,7 @@ public class MediaService {
         media.setDirectors(new HashSet<>(directors));
 
         media = mediaRepository.save(media);
+        recommendationService.onMediaChanged(media.getMediaId(), media.getAccessLevel(), media.getMediaType());
         return mediaMapper.toMediaResponse(media);
     }
 
@@ -106,6 +108,7 @@ public class MediaService {
         }
 
         media = mediaRepository.save(media);
+        recommendationService.onMediaChanged(media.getMediaId(), media.getAccessLevel(), media.getMediaType());
         return mediaMapper.toMediaResponse(media);
     }
 
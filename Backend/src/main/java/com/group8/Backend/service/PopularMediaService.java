@@ -0,0 +1,154 @@
+package com.group8.Backend.service;
+
+import com.group8.Backend.dto.response.MediaResponse;
+import com.group8.Backend.entity.Genre;
+import com.group8.Backend.entity.Media;
+import com.group8.Backend.entity.MediaType;
+import com.group8.Backend.mapper.MediaMapper;
+import com.group8.Backend.repository.GenreRepository;
+import com.group8.Backend.repository.MediaRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Most-viewed titles overall, per media type and per genre, mapped to responses ahead of time.
+ *
+ * The lists are rebuilt on a schedule and published as one immutable snapshot, so a read is a
+ * field access and never sees a half-refreshed rail.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PopularMediaService {
+    final MediaRepository mediaRepository;
+    final GenreRepository genreRepository;
+    final MediaMapper mediaMapper;
+    final PlatformTransactionManager transactionManager;
+    final MeterRegistry meterRegistry;
+
+    @Value("${recommendation.popular.size:10}")
+    int popularSize;
+
+    volatile PopularRail rail;
+    TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        Gauge.builder("recommendation.popular.age", this,
+                        service -> service.rail == null ? Double.NaN
+                                : (System.currentTimeMillis() - service.rail.builtAtMillis) / 1000.0)
+                .description("Seconds since the popular-titles rail was rebuilt")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /** Most-viewed titles of the whole catalog. */
+    public List<MediaResponse> getPopular() {
+        return currentRail().overall;
+    }
+
+    /**
+     * Most-viewed titles of a media type, a genre, or both; either may be null.
+     * With both, the genre's rail is narrowed to the type and may be shorter.
+     */
+    public List<MediaResponse> getPopular(MediaType mediaType, Integer genreId) {
+        PopularRail current = currentRail();
+        if (genreId != null) {
+            List<MediaResponse> byGenre = current.byGenre.getOrDefault(genreId, List.of());
+            return mediaType == null ? byGenre : byGenre.stream()
+                    .filter(media -> media.getMediaType() == mediaType)
+                    .toList();
+        }
+        if (mediaType != null) {
+            return current.byType.getOrDefault(mediaType, List.of());
+        }
+        return current.overall;
+    }
+
+    // Also runs once right after startup, so the first request finds the rail built
+    @Scheduled(fixedDelayString = "${recommendation.popular.refresh-interval:PT10M}")
+    public void refresh() {
+        try {
+            long start = System.nanoTime();
+            PopularRail built = readOnlyTransaction.execute(status -> buildRail());
+            rail = built;
+            log.info("Rebuilt popular titles for {} media types and {} genres in {} ms",
+                    built.byType.size(), built.byGenre.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Failed to rebuild popular titles, keeping the previous rail: {}", e.getMessage());
+        }
+    }
+
+    // The first read builds the rail; after that only the schedule does
+    private PopularRail currentRail() {
+        PopularRail current = rail;
+        if (current == null) {
+            synchronized (this) {
+                if (rail == null) {
+                    refresh();
+                }
+                current = rail;
+            }
+        }
+        return current != null ? current : PopularRail.EMPTY;
+    }
+
+    private PopularRail buildRail() {
+        Pageable top = PageRequest.of(0, popularSize, Sort.by(Sort.Direction.DESC, "viewCount"));
+        List<MediaResponse> overall = toResponses(mediaRepository.findAllWithFilters(null, null, null, top).getContent());
+
+        Map<MediaType, List<MediaResponse>> byType = new EnumMap<>(MediaType.class);
+        for (MediaType type : MediaType.values()) {
+            byType.put(type, toResponses(mediaRepository.findAllWithFilters(type, null, null, top).getContent()));
+        }
+
+        Map<Integer, List<MediaResponse>> byGenre = new HashMap<>();
+        for (Genre genre : genreRepository.findAll()) {
+            byGenre.put(genre.getGenreId(),
+                    toResponses(mediaRepository.findAllWithFilters(null, null, genre.getGenreId(), top).getContent()));
+        }
+        return new PopularRail(overall, byType, byGenre, System.currentTimeMillis());
+    }
+
+    private List<MediaResponse> toResponses(List<Media> media) {
+        return media.stream().map(mediaMapper::toMediaResponse).toList();
+    }
+
+    static final class PopularRail {
+        static final PopularRail EMPTY = new PopularRail(List.of(), Map.of(), Map.of(), 0);
+
+        final List<MediaResponse> overall;
+        final Map<MediaType, List<MediaResponse>> byType;
+        final Map<Integer, List<MediaResponse>> byGenre;
+        final long builtAtMillis;
+
+        PopularRail(List<MediaResponse> overall, Map<MediaType, List<MediaResponse>> byType,
+                    Map<Integer, List<MediaResponse>> byGenre, long builtAtMillis) {
+            this.overall = overall;
+            this.byType = Map.copyOf(byType);
+            this.byGenre = Map.copyOf(byGenre);
+            this.builtAtMillis = builtAtMillis;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.group8.Backend.service;
+
+import com.group8.Backend.entity.UserRecommendation;
+import com.group8.Backend.enums.ModelState;
+import com.group8.Backend.repository.UserRecommendationStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Precomputes every user's candidate pool into {@code user_recommendations}, so requests read a
+ * stored list instead of running the model.
+ *
+ * Users are read a page at a time from {@code favorites} by ascending id, so a run never holds more
+ * than one page. Each page is scored in parallel and then written in one transaction with JDBC batches.
+ * Runs go to their own thread, so the shared scheduler thread only starts them. Scoring holds no
+ * transaction: each favorites or user query commits on its own, and a worker is never pinned to a
+ * connection while it runs the model.
+ * Off by default; enable with recommendation.batch.enabled, which also makes requests read the table.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class RecommendationBatchService {
+    final RecommendationService recommendationService;
+    final UserRecommendationStore userRecommendationStore;
+    final JdbcTemplate jdbcTemplate;
+    final MeterRegistry meterRegistry;
+
+    @Value("${recommendation.batch.enabled:false}")
+    boolean enabled;
+
+    // Users scored and written per transaction
+    @Value("${recommendation.batch.page-size:500}")
+    int pageSize;
+
+    // 0 means one thread fewer than the available cores, leaving one for requests
+    @Value("${recommendation.batch.parallelism:0}")
+    int parallelism;
+
+    final AtomicBoolean running = new AtomicBoolean();
+    final AtomicInteger lastRunUsers = new AtomicInteger();
+    volatile long lastCompletedMillis;
+    ExecutorService runner;
+    ExecutorService workers;
+    Timer runTimer;
+    Counter failedUsers;
+
+    @PostConstruct
+    public void init() {
+        runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-batch-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger threadCounter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-batch-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("recommendation.batch.users", lastRunUsers, AtomicInteger::get)
+                .description("Users whose recommendations the last completed run stored")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.batch.age", this,
+                        service -> service.lastCompletedMillis == 0 ? Double.NaN
+                                : (System.currentTimeMillis() - service.lastCompletedMillis) / 1000.0)
+                .description("Seconds since the last completed precompute run")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        runTimer = Timer.builder("recommendation.batch.duration")
+                .description("Time to precompute and store recommendations for every user")
+                .register(meterRegistry);
+        failedUsers = Counter.builder("recommendation.batch.failures")
+                .description("Users whose recommendations could not be computed in a run")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${recommendation.batch.refresh-interval:PT24H}",
+            initialDelayString = "${recommendation.batch.initial-delay:PT10M}")
+    public void precomputeAll() {
+        if (!enabled) {
+            return;
+        }
+        if (recommendationService.getModelState() != ModelState.READY) {
+            log.info("Skipping recommendation precompute while the model is {}", recommendationService.getModelState());
+            return;
+        }
+        // A run lasting past the next trigger makes that trigger a no-op
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            runner.execute(this::precompute);
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+
+    private void precompute() {
+        try {
+            long start = System.nanoTime();
+            // One timestamp per run, so every row of a run ages together
+            LocalDateTime computedAt = LocalDateTime.now();
+            int users = 0;
+            int rows = 0;
+            int lastUserId = Integer.MIN_VALUE;
+            while (true) {
+                List<Integer> page = jdbcTemplate.queryForList(
+                        "SELECT DISTINCT UserID FROM favorites WHERE UserID > ? ORDER BY UserID LIMIT ?",
+                        Integer.class, lastUserId, pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                lastUserId = page.get(page.size() - 1);
+                rows += precomputePage(page, computedAt);
+                users += page.size();
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            runTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            lastRunUsers.set(users);
+            lastCompletedMillis = System.currentTimeMillis();
+            log.info("Stored {} recommendations for {} users in {} ms", rows, users, elapsedNanos / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Recommendation precompute stopped: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Scores the page in parallel, then replaces its users' rows; users that fail keep their previous rows
+    private int precomputePage(List<Integer> userIds, LocalDateTime computedAt) throws InterruptedException {
+        List<Future<List<UserRecommendation>>> futures = new ArrayList<>(userIds.size());
+        for (Integer userId : userIds) {
+            futures.add(workers.submit(() -> recommendationService.computeStoredRecommendations(userId, computedAt)));
+        }
+
+        List<Integer> computedUsers = new ArrayList<>(userIds.size());
+        List<UserRecommendation> rows = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                rows.addAll(futures.get(i).get());
+                computedUsers.add(userIds.get(i));
+            } catch (ExecutionException e) {
+                failedUsers.increment();
+                log.debug("Failed to precompute recommendations for user {}: {}", userIds.get(i),
+                        e.getCause().getMessage());
+            }
+        }
+        userRecommendationStore.replace(computedUsers, rows, computedAt);
+        return rows.size();
+    }
+}
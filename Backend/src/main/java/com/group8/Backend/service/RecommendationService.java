@@ -5,31 +5,92 @@ import ai.djl.inference.Predictor;
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.Shape;
 import ai.djl.repository.zoo.Criteria;
 import ai.djl.repository.zoo.ModelNotFoundException;
 import ai.djl.repository.zoo.ModelZoo;
 import ai.djl.repository.zoo.ZooModel;
 import ai.djl.training.util.ProgressBar;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.group8.Backend.dto.response.MediaResponse;
+import com.group8.Backend.dto.response.RecommendationStatusResponse;
+import com.group8.Backend.entity.Favorite;
 import com.group8.Backend.entity.Media;
+import com.group8.Backend.entity.MediaType;
+import com.group8.Backend.entity.User;
+import com.group8.Backend.entity.UserRecommendation;
+import com.group8.Backend.enums.ModelState;
+import com.group8.Backend.enums.RecommendationMode;
+import com.group8.Backend.exception.AppException;
+import com.group8.Backend.exception.ErrorCode;
 import com.group8.Backend.mapper.MediaMapper;
+import com.group8.Backend.recommendation.CatalogAttributes;
+import com.group8.Backend.recommendation.CatalogFilter;
+import com.group8.Backend.recommendation.CoFavoriteIndex;
+import com.group8.Backend.recommendation.EmbeddingSnapshot;
+import com.group8.Backend.recommendation.EmbeddingStore;
+import com.group8.Backend.recommendation.HnswIndex;
+import com.group8.Backend.recommendation.IndexRecall;
+import com.group8.Backend.recommendation.ModelVersion;
+import com.group8.Backend.recommendation.MovieLensLinks;
+import com.group8.Backend.recommendation.NeighbourTable;
+import com.group8.Backend.recommendation.PredictorPool;
+import com.group8.Backend.recommendation.QuantizedIndex;
+import com.group8.Backend.recommendation.SimilarityIndex;
+import com.group8.Backend.recommendation.SingleFlight;
+import com.group8.Backend.recommendation.VectorMath;
 import com.group8.Backend.repository.FavoriteRepository;
 import com.group8.Backend.repository.MediaRepository;
+import com.group8.Backend.repository.UserRecommendationStore;
+import com.group8.Backend.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -37,146 +98,1024 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class RecommendationService {
+    static final int SIMILAR_MOVIES_LIMIT = 20;
+    static final int CANDIDATE_POOL_SIZE = 30;
+    // Levels UserService.canAccessMedia distinguishes, cheapest first
+    static final String[] ACCESS_LEVELS = { "FREE", "PREMIUM", "VIP" };
+    // Where a request's candidate pool came from, the pool tag of recommendation.request
+    static final String[] POOL_SOURCES = { "cached", "stored", "computed" };
+    static final int POOL_CACHED = 0;
+    static final int POOL_STORED = 1;
+    static final int POOL_COMPUTED = 2;
+
     final FavoriteRepository favoriteRepository;
     final MediaRepository mediaRepository;
     final MediaMapper mediaMapper;
     final JdbcTemplate jdbcTemplate;
+    final MeterRegistry meterRegistry;
+    final PlatformTransactionManager transactionManager;
+    final PopularMediaService popularMediaService;
+    final UserRepository userRepository;
+    final UserService userService;
+    final UserRecommendationStore userRecommendationStore;
 
     @Value("${recommendation.model.path:src/main/resources/models/gcn_model.pt}")
     String modelPath;
 
-    // Cache to store movie embeddings for fast similarity calculation
-    Map<Integer, float[]> movieEmbeddings = new ConcurrentHashMap<>();
+    // "store" searches the flat normalized matrix, "legacy" keeps the original map scan for comparison
+    @Value("${recommendation.similarity.engine:store}")
+    String similarityEngine;
 
-    // Cache to store pre-calculated similar movies
-    Map<Integer, List<Integer>> similarMoviesCache = new ConcurrentHashMap<>();
+    // "hnsw" for approximate search, "int8" or "fp16" to scan a quantized copy, "exact" to scan the whole store
+    @Value("${recommendation.index.type:hnsw}")
+    String indexType;
+
+    // Quantized indexes re-score this many candidates per result in float32; 0 disables the re-rank
+    @Value("${recommendation.index.rerank-factor:4}")
+    int indexRerankFactor;
+
+    // Queries used to measure recall against exact search after a non-exact index is built; 0 skips it
+    @Value("${recommendation.index.recall-sample:200}")
+    int indexRecallSample;
+
+    @Value("${recommendation.index.m:16}")
+    int indexM;
+
+    @Value("${recommendation.index.ef-construction:200}")
+    int indexEfConstruction;
+
+    @Value("${recommendation.index.ef-search:100}")
+    int indexEfSearch;
+
+    @Value("${recommendation.snapshot.enabled:true}")
+    boolean snapshotEnabled;
+
+    // Defaults to the model path with an ".embeddings" suffix
+    @Value("${recommendation.snapshot.path:}")
+    String snapshotFile;
+
+    @Value("${recommendation.cache.enabled:true}")
+    boolean cacheEnabled;
+
+    @Value("${recommendation.cache.size:1000}")
+    long cacheSize;
+
+    // Zero keeps entries until they are evicted by size
+    @Value("${recommendation.cache.ttl:0s}")
+    Duration cacheTtl;
+
+    @Value("${recommendation.user-cache.size:10000}")
+    long userCacheSize;
+
+    @Value("${recommendation.user-cache.ttl:1h}")
+    Duration userCacheTtl;
+
+    // Used when a request does not pick a mode: "vote", "mean", "recent" or "cofavorite"
+    @Value("${recommendation.mode:vote}")
+    String defaultMode;
+
+    // In "recent" mode a favorite's weight halves every half-life since it was added
+    @Value("${recommendation.profile.half-life:30d}")
+    Duration profileHalfLife;
+
+    @Value("${recommendation.cofavorite.enabled:true}")
+    boolean coFavoriteEnabled;
+
+    // Co-favorited titles kept per title
+    @Value("${recommendation.cofavorite.neighbours:100}")
+    int coFavoriteNeighbours;
+
+    // Favorites per user counted when the index is built, most recent first; bounds the pairs per user
+    @Value("${recommendation.cofavorite.max-user-favorites:500}")
+    int coFavoriteMaxUserFavorites;
+
+    // Weight of a co-favorite neighbour against an embedding neighbour in "vote" mode; 0, the default,
+    // keeps "vote" to embedding neighbours only, so blending is opt-in
+    @Value("${recommendation.cofavorite.weight:0}")
+    double coFavoriteWeight;
+
+    // Serve pools precomputed by RecommendationBatchService from user_recommendations when fresh
+    @Value("${recommendation.batch.enabled:false}")
+    boolean batchEnabled;
+
+    // Stored pools older than this are recomputed on request; longer than the batch interval so a slow run is covered
+    @Value("${recommendation.batch.max-age:PT36H}")
+    Duration batchMaxAge;
+
+    // Worker threads for asynchronous recommendation requests; 0 means one per available core
+    @Value("${recommendation.async.threads:0}")
+    int asyncThreads;
+
+    // Requests waiting for a worker beyond this are answered with popular titles straight away
+    @Value("${recommendation.async.queue-capacity:100}")
+    int asyncQueueCapacity;
+
+    // Requests still running after this are answered with popular titles
+    @Value("${recommendation.async.deadline:2s}")
+    Duration asyncDeadline;
+
+    // Bounded pool for recommendation requests, so slow inference cannot take over the servlet threads
+    ThreadPoolExecutor requestExecutor;
+    TransactionTemplate readOnlyTransaction;
 
-    // DJL components
-    ZooModel<NDList, NDList> model;
-    Predictor<NDList, NDList> predictor;
-    NDManager manager;
+    @Value("${recommendation.precompute.enabled:true}")
+    boolean precomputeEnabled;
 
+    // 0 means one thread fewer than the available cores
+    @Value("${recommendation.precompute.parallelism:0}")
+    int precomputeParallelism;
+
+    @Value("${recommendation.warmup.batch-size:1024}")
+    int warmupBatchSize;
+
+    // 0 means one predictor per available core
+    @Value("${recommendation.warmup.threads:0}")
+    int warmupThreads;
+
+    // 0 means one predictor per available core
+    @Value("${recommendation.predictor.pool-size:0}")
+    int predictorPoolSize;
+
+    // How long an on-demand inference waits for a free predictor before giving up
+    @Value("${recommendation.predictor.checkout-timeout:2s}")
+    Duration predictorCheckoutTimeout;
+
+    // Embeddings computed on demand for movies missing from the store
+    Cache<Integer, float[]> movieEmbeddings;
+
+    // Cache to store pre-calculated similar movies
+    Cache<Integer, List<Integer>> similarMoviesCache;
+
+    // Scored candidate pool per user, access and request (see poolKey), evicted when the user's favorites change
+    Cache<Long, List<Integer>> userCandidatePools;
+
+    // Access mask per user (see accessMask), so a cached pool is found without loading the user
+    Cache<Integer, Integer> userAccessMasks;
+
+    // In-flight cache misses, keyed by model version and movie id
+    final SingleFlight<Long, float[]> embeddingLoads = new SingleFlight<>();
+    final SingleFlight<Long, List<Integer>> similarMoviesLoads = new SingleFlight<>();
+
+    // Live model with its embedding store, similarity index and neighbour table; replaced whole on reload
+    volatile ModelVersion version;
+    // Whether the first model is loaded; only ever leaves LOADING once
+    volatile ModelState modelState = ModelState.LOADING;
+
+    // Item-item counts from the favorites table, null until first built; updated on every toggle
+    volatile CoFavoriteIndex coFavorites;
+
+    final AtomicInteger versionCounter = new AtomicInteger();
+    final AtomicBoolean reloading = new AtomicBoolean();
+    // Runs reloads and incremental catalog updates one at a time
+    final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "recommendation-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // movielens_links in both directions; replaced as a whole on refresh
+    volatile MovieLensLinks movieLensLinks = MovieLensLinks.empty();
+
+    // Warm-up progress, published as metrics
+    final AtomicInteger warmupTotal = new AtomicInteger();
+    final AtomicInteger warmupEmbedded = new AtomicInteger();
+    Counter warmupEmbeddedCounter;
+    Counter warmupFailedCounter;
+    Timer warmupBatchTimer;
+
+    // Predictor checkout wait and timeouts
+    Timer predictorCheckoutTimer;
+    Counter predictorTimeoutCounter;
+
+    // Request path by stage (recommendation.stage) and neighbour lookups by source (recommendation.neighbours)
+    Timer favoritesTimer;
+    Timer translationTimer;
+    Timer scoringTimer;
+    Timer hydrationTimer;
+    Timer mappingTimer;
+    Timer precomputedNeighboursTimer;
+    Timer cachedNeighboursTimer;
+    Timer computedNeighboursTimer;
+    Timer filteredNeighboursTimer;
+    Timer profileNeighboursTimer;
+    Timer coFavoriteNeighboursTimer;
+    Timer similarMediaTimer;
+    // End-to-end request latency by mode, indexed by pool source
+    final Map<RecommendationMode, Timer[]> requestTimers = new EnumMap<>(RecommendationMode.class);
+
+    // Loading and warm-up run in the background so the rest of the application starts without waiting
     @PostConstruct
     public void init() {
+        createCaches();
+        createRequestExecutor();
+        registerWarmupMetrics();
+        registerStageMetrics();
+        // Co-favorites need no model, so they are ready long before the embeddings
+        backgroundExecutor.execute(this::rebuildCoFavorites);
+        backgroundExecutor.execute(this::loadInitialVersion);
+    }
+
+    private void loadInitialVersion() {
         log.info("Initializing recommendation service with PyTorch model...");
+        long start = System.nanoTime();
+        refreshMovieLensLinks();
 
         try {
-            // Initialize NDManager
-            manager = NDManager.newBaseManager();
-
-            // Load the model
-            loadModel();
-
-            // Cache movie embeddings for faster lookup
-            cacheMovieEmbeddings();
-
-            log.info("Recommendation service initialized successfully");
+            ModelVersion loaded = loadVersion(modelPath);
+            refreshCatalogAttributes(loaded);
+            version = loaded;
+            modelState = ModelState.READY;
+            // At startup there is nothing to serve yet, so neighbour lists fill in while requests arrive
+            startNeighbourPrecompute(loaded);
+
+            log.info("Recommendation service initialized successfully in {} ms", (System.nanoTime() - start) / 1_000_000);
         } catch (Exception e) {
             log.error("Failed to initialize recommendation service: {}", e.getMessage(), e);
             log.info("Falling back to sample data...");
             // Create fallback data just in case
             populateSampleData();
+            modelState = ModelState.FAILED;
         }
     }
 
-    private void loadModel() {
+    public ModelState getModelState() {
+        return modelState;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backgroundExecutor.shutdownNow();
+        if (requestExecutor != null) {
+            requestExecutor.shutdownNow();
+        }
+        ModelVersion current = version;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Loads {@code path} next to the live model in the background and swaps to it once its
+     * embeddings, index and neighbour lists are complete. Requests keep using the live
+     * version until then.
+     *
+     * @param path model file to load, or null to reload the current one
+     * @return the version number the new model will get
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public int reloadModel(String path) {
+        ModelVersion current = version;
+        String target = path == null || path.isBlank()
+                ? (current != null ? current.modelPath() : modelPath)
+                : validateModelPath(path);
+        if (!reloading.compareAndSet(false, true)) {
+            throw new AppException(ErrorCode.MODEL_RELOAD_IN_PROGRESS);
+        }
+        int number = versionCounter.get() + 1;
         try {
-            log.info("Loading PyTorch model from: {}", modelPath);
+            backgroundExecutor.execute(() -> {
+                try {
+                    swapVersion(target);
+                } finally {
+                    reloading.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            reloading.set(false);
+            throw e;
+        }
+        log.info("Reloading recommendation model from {} as version {}", target, number);
+        return number;
+    }
+
+    // Only gcn_model*.pt files next to the configured model can be loaded
+    private String validateModelPath(String path) {
+        Path configuredDir = Paths.get(modelPath).toAbsolutePath().normalize().getParent();
+        Path requested = Paths.get(path).toAbsolutePath().normalize();
+        String name = requested.getFileName() == null ? "" : requested.getFileName().toString();
+        if (configuredDir == null || !configuredDir.equals(requested.getParent())
+                || !name.startsWith("gcn_model") || !name.endsWith(".pt") || !Files.isRegularFile(requested)) {
+            throw new AppException(ErrorCode.INVALID_MODEL_PATH);
+        }
+        return requested.toString();
+    }
+
+    private void swapVersion(String path) {
+        long start = System.nanoTime();
+        ModelVersion next;
+        try {
+            next = loadVersion(path);
+            // Unlike startup, a live version is serving, so the new one is only published fully warm
+            if (next.neighbours() != null) {
+                fillNeighbours(next);
+            }
+            refreshCatalogAttributes(next);
+        } catch (Exception e) {
+            log.error("Model reload from {} failed, keeping version {}: {}", path,
+                    version == null ? 0 : version.number(), e.getMessage(), e);
+            return;
+        }
+
+        ModelVersion previous = version;
+        version = next;
+        // A reload also recovers a service that started on sample data
+        modelState = ModelState.READY;
+        // Results computed by the previous model are dropped; new lookups use the new neighbour table
+        similarMoviesCache.invalidateAll();
+        movieEmbeddings.invalidateAll();
+        userCandidatePools.invalidateAll();
+        log.info("Swapped to recommendation model version {} from {} in {} ms",
+                next.number(), path, (System.nanoTime() - start) / 1_000_000);
+
+        if (previous != null) {
+            try {
+                if (!previous.close(predictorCheckoutTimeout.multipliedBy(2))) {
+                    log.warn("Model version {} still had inferences running, leaving its native resources open",
+                            previous.number());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Builds a complete version for the model at path; neighbour lists are allocated but not filled
+    private ModelVersion loadVersion(String path) {
+        int number = versionCounter.incrementAndGet();
+        // A snapshot written for this exact model file skips the model, as long as it covers every linked id
+        byte[] modelChecksum = modelChecksum(path);
+        EmbeddingStore store = loadSnapshot(path, modelChecksum);
+        int[] uncovered = uncoveredMovieLensIds(store);
+
+        NDManager manager = null;
+        ZooModel<NDList, NDList> model = null;
+        PredictorPool predictors = null;
+        try {
+            if (store == null || uncovered.length > 0) {
+                try {
+                    // Initialize NDManager (this is what loads the PyTorch native engine)
+                    manager = NDManager.newBaseManager();
+                    // Load the model
+                    model = loadModel(path);
+                    predictors = newPredictorPool(model);
+                } catch (RuntimeException e) {
+                    if (store == null) {
+                        throw e;
+                    }
+                    log.warn("Cannot load the model to embed {} MovieLens ids missing from the snapshot, serving it without them: {}",
+                            uncovered.length, e.getMessage());
+                    closeQuietly(model, manager);
+                    model = null;
+                    manager = null;
+                }
+            }
+            if (predictors != null) {
+                // Cache movie embeddings for faster lookup
+                Map<Integer, float[]> embedded = computeMovieEmbeddings(predictors, manager, uncovered);
+                EmbeddingStore built = store == null ? buildEmbeddingStore(embedded) : store.withVectors(embedded);
+                // Titles linked since the snapshot was written are folded into a new one
+                if (built != store) {
+                    store = writeSnapshot(path, modelChecksum, built);
+                }
+            }
+            SimilarityIndex index = buildSimilarityIndex(store);
+            double recall = measureRecall(store, index);
+            NeighbourTable table = precomputeEnabled ? new NeighbourTable(store, SIMILAR_MOVIES_LIMIT) : null;
+            return new ModelVersion(number, path, store, index, recall, table, model, predictors, manager);
+        } catch (RuntimeException e) {
+            new ModelVersion(number, path, store, null, Double.NaN, null, model, predictors, manager).close();
+            throw e;
+        }
+    }
+
+    /**
+     * Linked MovieLens ids {@code store} has no vector for, or every linked id without a store.
+     * With a snapshot and an unreadable links table the snapshot is taken as complete.
+     */
+    private int[] uncoveredMovieLensIds(EmbeddingStore store) {
+        int[] linked;
+        try {
+            linked = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT movieId FROM movielens_links ORDER BY movieId",
+                    Integer.class).stream().mapToInt(Integer::intValue).toArray();
+        } catch (DataAccessException e) {
+            if (store == null) {
+                throw new RuntimeException("Failed to read MovieLens ids to embed", e);
+            }
+            log.warn("Cannot read MovieLens ids to check the embedding snapshot against: {}", e.getMessage());
+            return new int[0];
+        }
+        if (store == null) {
+            return linked;
+        }
+        int[] uncovered = store.missing(linked);
+        if (uncovered.length > 0) {
+            log.info("Embedding snapshot lacks {} of {} linked MovieLens ids; the model embeds them",
+                    uncovered.length, linked.length);
+        }
+        return uncovered;
+    }
+
+    private PredictorPool newPredictorPool(ZooModel<NDList, NDList> model) {
+        int poolSize = predictorPoolSize > 0 ? predictorPoolSize : Runtime.getRuntime().availableProcessors();
+        PredictorPool predictors = new PredictorPool(model, poolSize, predictorCheckoutTimeout);
+        log.info("PyTorch model loaded successfully with {} predictors", poolSize);
+        return predictors;
+    }
+
+    /**
+     * Loads the model of a version served from a snapshot, for a movie the snapshot lacks.
+     * Runs on the maintenance thread, never on a request.
+     *
+     * @return the version's predictors, or null if the model cannot be loaded
+     */
+    private PredictorPool attachPredictors(ModelVersion target) {
+        PredictorPool attached = target.predictors();
+        if (attached != null) {
+            return attached;
+        }
+        NDManager manager = null;
+        ZooModel<NDList, NDList> model = null;
+        try {
+            manager = NDManager.newBaseManager();
+            model = loadModel(target.modelPath());
+            PredictorPool predictors = newPredictorPool(model);
+            if (target.attachModel(model, predictors, manager)) {
+                return predictors;
+            }
+            predictors.close();
+        } catch (RuntimeException e) {
+            log.warn("Cannot load model {} for version {}: {}", target.modelPath(), target.number(), e.getMessage());
+        }
+        closeQuietly(model, manager);
+        return target.predictors();
+    }
+
+    private static void closeQuietly(ZooModel<NDList, NDList> model, NDManager manager) {
+        if (model != null) {
+            model.close();
+        }
+        if (manager != null) {
+            manager.close();
+        }
+    }
+
+    // Size-bounded with W-TinyLFU admission, so one-off lookups cannot push out frequently used entries
+    private void createCaches() {
+        similarMoviesCache = CaffeineCacheMetrics.monitor(meterRegistry,
+                newCacheBuilder().<Integer, List<Integer>>build(), "recommendation.similar-movies");
+        movieEmbeddings = CaffeineCacheMetrics.monitor(meterRegistry,
+                newCacheBuilder().<Integer, float[]>build(), "recommendation.embeddings");
+        userCandidatePools = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(userCacheSize)
+                        .expireAfterWrite(userCacheTtl)
+                        .recordStats()
+                        .<Long, List<Integer>>build(),
+                "recommendation.user-candidates");
+        // Same lifetime as the pools, so a lapsed subscription stops matching within one TTL
+        userAccessMasks = Caffeine.newBuilder()
+                .maximumSize(userCacheSize)
+                .expireAfterWrite(userCacheTtl)
+                .build();
+        log.info("Recommendation caches hold up to {} entries each{}", cacheSize,
+                cacheTtl.isZero() ? "" : ", expiring after " + cacheTtl);
+    }
+
+    private void createRequestExecutor() {
+        int threads = asyncThreads > 0 ? asyncThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger();
+        requestExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, asyncQueueCapacity)), runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        requestExecutor.allowCoreThreadTimeOut(true);
+        ExecutorServiceMetrics.monitor(meterRegistry, requestExecutor, "recommendation.requests");
+
+        // Workers have no open-session-in-view, so hydration and mapping run in their own read-only transaction;
+        // only those, so a worker never holds a pooled connection through scoring or inference
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    private Caffeine<Object, Object> newCacheBuilder() {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats();
+        if (!cacheTtl.isZero() && !cacheTtl.isNegative()) {
+            builder.expireAfterWrite(cacheTtl);
+        }
+        return builder;
+    }
+
+    private byte[] modelChecksum(String path) {
+        if (!snapshotEnabled) {
+            return null;
+        }
+        try {
+            long start = System.nanoTime();
+            byte[] checksum = EmbeddingSnapshot.checksum(Paths.get(path));
+            log.info("Computed model checksum in {} ms", (System.nanoTime() - start) / 1_000_000);
+            return checksum;
+        } catch (IOException e) {
+            log.warn("Cannot checksum model file {}, embedding snapshot disabled: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private EmbeddingStore loadSnapshot(String modelFile, byte[] modelChecksum) {
+        if (modelChecksum == null) {
+            return null;
+        }
+        Path path = snapshotPath(modelFile);
+        try {
+            long start = System.nanoTime();
+            EmbeddingStore store = EmbeddingSnapshot.load(path, modelChecksum);
+            if (store == null) {
+                log.info("No usable embedding snapshot for the current model at {}", path);
+                return null;
+            }
+            log.info("Mapped embedding snapshot {} with {} vectors of dimension {} in {} ms",
+                    path, store.size(), store.dimension(), (System.nanoTime() - start) / 1_000_000);
+            return store;
+        } catch (IOException e) {
+            log.warn("Failed to read embedding snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    // Returns the store to serve: the re-mapped snapshot when it was written, otherwise the heap copy
+    private EmbeddingStore writeSnapshot(String modelFile, byte[] modelChecksum, EmbeddingStore store) {
+        if (modelChecksum == null || store.size() == 0) {
+            return store;
+        }
+        Path path = snapshotPath(modelFile);
+        try {
+            EmbeddingSnapshot.write(path, modelChecksum, store);
+            log.info("Wrote embedding snapshot with {} vectors to {}", store.size(), path);
+            // Re-map what was just written so the vectors move off the heap
+            EmbeddingStore mapped = EmbeddingSnapshot.load(path, modelChecksum);
+            return mapped != null ? mapped : store;
+        } catch (IOException e) {
+            log.warn("Failed to write embedding snapshot {}: {}", path, e.getMessage());
+            return store;
+        }
+    }
+
+    // A configured snapshot path only applies to the configured model; reloaded models get their own file
+    private Path snapshotPath(String modelFile) {
+        return snapshotFile == null || snapshotFile.isBlank() || !modelFile.equals(modelPath)
+                ? Paths.get(modelFile + ".embeddings")
+                : Paths.get(snapshotFile);
+    }
+
+    private void registerWarmupMetrics() {
+        Gauge.builder("recommendation.warmup.total", warmupTotal, AtomicInteger::get)
+                .description("MovieLens ids scheduled for embedding at startup")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.warmup.embedded", warmupEmbedded, AtomicInteger::get)
+                .description("Embeddings computed so far during warm-up")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.warmup.progress", this,
+                        service -> service.warmupTotal.get() == 0 ? 0.0
+                                : (double) service.warmupEmbedded.get() / service.warmupTotal.get())
+                .description("Fraction of the catalog embedded during warm-up")
+                .register(meterRegistry);
+        warmupEmbeddedCounter = Counter.builder("recommendation.warmup.embeddings")
+                .description("Embeddings produced by warm-up batches")
+                .register(meterRegistry);
+        warmupFailedCounter = Counter.builder("recommendation.warmup.failures")
+                .description("MovieLens ids the model could not embed during warm-up")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.precompute.progress", this,
+                        service -> service.neighbourTable() == null ? 0.0 : service.neighbourTable().progress())
+                .description("Fraction of the catalog with precomputed neighbour lists")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.precompute.duration", this,
+                        service -> service.neighbourTable() == null ? 0.0 : service.neighbourTable().elapsedMillis() / 1000.0)
+                .description("Seconds spent precomputing neighbour lists, final once complete")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.links.size", this, service -> service.movieLensLinks.size())
+                .description("MovieLens ids with a media mapping held in memory")
+                .register(meterRegistry);
+        warmupBatchTimer = Timer.builder("recommendation.warmup.batch")
+                .description("Time to embed one warm-up batch")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.predictor.pool.waiting", this,
+                        service -> service.predictorPool() == null ? 0 : service.predictorPool().waiting())
+                .description("Threads waiting for a free predictor")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.predictor.pool.available", this,
+                        service -> service.predictorPool() == null ? 0 : service.predictorPool().available())
+                .description("Predictors not checked out")
+                .register(meterRegistry);
+        predictorCheckoutTimer = Timer.builder("recommendation.predictor.checkout")
+                .description("Time spent waiting for a predictor")
+                .register(meterRegistry);
+        predictorTimeoutCounter = Counter.builder("recommendation.predictor.timeouts")
+                .description("On-demand inferences abandoned because no predictor was free")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.inference.native.bytes", this,
+                        service -> service.version == null ? 0 : service.version.nativeBytes())
+                .description("Native memory held by DJL arrays still open under the live model")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.inference.native.arrays", this,
+                        service -> service.version == null ? 0 : service.version.nativeArrays())
+                .description("DJL arrays still open under the live model")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.cofavorite.items", this,
+                        service -> service.coFavorites == null ? 0 : service.coFavorites.items())
+                .description("Titles in the co-favorite index")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.model.version", this,
+                        service -> service.version == null ? 0 : service.version.number())
+                .description("Number of the model version currently serving")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.index.recall", this,
+                        service -> service.version == null ? Double.NaN : service.version.indexRecall())
+                .description("Recall@20 of the similarity index against exact search, measured when it was built")
+                .register(meterRegistry);
+        FunctionCounter.builder("recommendation.singleflight.coalesced", embeddingLoads, SingleFlight::coalesced)
+                .description("Cache misses that waited for another request's load instead of computing")
+                .tag("load", "embedding")
+                .register(meterRegistry);
+        FunctionCounter.builder("recommendation.singleflight.coalesced", similarMoviesLoads, SingleFlight::coalesced)
+                .description("Cache misses that waited for another request's load instead of computing")
+                .tag("load", "similar-movies")
+                .register(meterRegistry);
+    }
+
+    private void registerStageMetrics() {
+        favoritesTimer = stageTimer("favorites", "Fetching the user's favorites");
+        translationTimer = stageTimer("translation", "Translating between media ids and MovieLens ids");
+        scoringTimer = stageTimer("scoring", "Scoring and ranking candidates, neighbour lookups excluded");
+        hydrationTimer = stageTimer("hydration", "Loading the picked titles from the database");
+        mappingTimer = stageTimer("mapping", "Mapping the picked titles to responses");
+        precomputedNeighboursTimer = neighbourTimer("precomputed");
+        cachedNeighboursTimer = neighbourTimer("cache");
+        computedNeighboursTimer = neighbourTimer("computed");
+        filteredNeighboursTimer = neighbourTimer("filtered");
+        profileNeighboursTimer = neighbourTimer("profile");
+        coFavoriteNeighboursTimer = neighbourTimer("cofavorite");
+        similarMediaTimer = latencyTimer("recommendation.similar-media", "Similar-title rails, end to end")
+                .register(meterRegistry);
+        for (RecommendationMode mode : RecommendationMode.values()) {
+            Timer[] timers = new Timer[POOL_SOURCES.length];
+            for (int source = 0; source < timers.length; source++) {
+                timers[source] = latencyTimer("recommendation.request", "Scored recommendation requests, end to end")
+                        .tags("mode", mode.name().toLowerCase(Locale.ROOT), "pool", POOL_SOURCES[source])
+                        .register(meterRegistry);
+            }
+            requestTimers.put(mode, timers);
+        }
+    }
+
+    private Timer stageTimer(String stage, String description) {
+        return latencyTimer("recommendation.stage", description).tag("stage", stage).register(meterRegistry);
+    }
+
+    // Cache misses ("computed") include waiting on another request's search for the same movie
+    private Timer neighbourTimer(String source) {
+        return latencyTimer("recommendation.neighbours", "Neighbour lookups of one favorite or profile, by where the list came from")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    // Histogram buckets let Prometheus aggregate percentiles across instances; stages run in micro- to milliseconds
+    private static Timer.Builder latencyTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(10));
+    }
+
+    // Records the time since start and returns the current time, so consecutive stages can chain
+    private static long record(Timer timer, long start) {
+        long now = System.nanoTime();
+        timer.record(now - start, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    private NeighbourTable neighbourTable() {
+        ModelVersion current = version;
+        return current == null ? null : current.neighbours();
+    }
+
+    private PredictorPool predictorPool() {
+        ModelVersion current = version;
+        return current == null ? null : current.predictors();
+    }
+
+    private ZooModel<NDList, NDList> loadModel(String path) {
+        try {
+            log.info("Loading PyTorch model from: {}", path);
             // Check if the file exists
-            java.io.File modelFile = new java.io.File(modelPath);
+            java.io.File modelFile = new java.io.File(path);
             if (!modelFile.exists()) {
-                log.error("Model file does not exist at path: {}", modelPath);
-                throw new RuntimeException("Model file not found: " + modelPath);
+                log.error("Model file does not exist at path: {}", path);
+                throw new RuntimeException("Model file not found: " + path);
             }
             // Log file size and other details
             log.info("Model file exists, size: {} bytes", modelFile.length());
 
             Criteria<NDList, NDList> criteria = Criteria.builder()
                     .setTypes(NDList.class, NDList.class)
-                    .optModelPath(Paths.get(modelPath))
+                    .optModelPath(Paths.get(path))
                     .optEngine("PyTorch")
                     .optProgress(new ProgressBar())
                     .build();
             // Try loading the model
             log.info("Attempting to load model with DJL...");
-            model = ModelZoo.loadModel(criteria);
-            predictor = model.newPredictor();
-
-            log.info("PyTorch model loaded successfully");
+            return ModelZoo.loadModel(criteria);
         } catch (ModelNotFoundException | MalformedModelException | IOException e) {
             log.error("Failed to load model: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to load recommendation model", e);
         }
     }
 
-    private void cacheMovieEmbeddings() {
+    private Map<Integer, float[]> computeMovieEmbeddings(PredictorPool predictors, NDManager manager,
+                                                         int[] allMovieLensIds) {
         try {
             log.info("Caching movie embeddings for faster similarity calculations");
 
-            // Get all known MovieLens IDs from database
-            List<Integer> allMovieLensIds = jdbcTemplate.queryForList(
-                    "SELECT DISTINCT movieId FROM movielens_links ORDER BY movieId",
-                    Integer.class);
-
-            int counter = 0;
-            for (Integer movieId : allMovieLensIds) {
-                try {
-                    float[] embedding = getMovieEmbedding(movieId);
-                    if (embedding != null) {
-                        movieEmbeddings.put(movieId, embedding);
-                        counter++;
-
-                        // Log progress periodically
-                        if (counter % 100 == 0) {
-                            log.info("Cached {} movie embeddings so far", counter);
+            int batchSize = Math.max(1, warmupBatchSize);
+            int batchCount = (allMovieLensIds.length + batchSize - 1) / batchSize;
+            // Workers hold a pooled predictor for the whole warm-up, so never more of them than the pool has
+            int threads = Math.max(1, Math.min(Math.min(
+                    warmupThreads > 0 ? warmupThreads : Runtime.getRuntime().availableProcessors(), batchCount),
+                    predictors.size()));
+
+            warmupTotal.set(allMovieLensIds.length);
+            warmupEmbedded.set(0);
+            long start = System.nanoTime();
+            Map<Integer, float[]> embeddings = new ConcurrentHashMap<>(allMovieLensIds.length * 2);
+
+            // Each worker checks out one predictor and pulls the next batch until none are left
+            AtomicInteger nextBatch = new AtomicInteger();
+            AtomicInteger threadCounter = new AtomicInteger();
+            ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "embedding-warmup-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    futures.add(workers.submit(() -> {
+                        try (PredictorPool.Lease lease = predictors.borrow()) {
+                            int batch;
+                            while ((batch = nextBatch.getAndIncrement()) < batchCount) {
+                                int from = batch * batchSize;
+                                int to = Math.min(from + batchSize, allMovieLensIds.length);
+                                embedBatch(lease.predictor(), manager, Arrays.copyOfRange(allMovieLensIds, from, to), embeddings);
+                            }
                         }
-                    }
-                } catch (Exception e) {
-                    log.warn("Failed to get embedding for movie {}: {}", movieId, e.getMessage());
+                        return null;
+                    }));
                 }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                workers.shutdownNow();
             }
 
-            log.info("Successfully cached embeddings for {} movies", movieEmbeddings.size());
+            double seconds = (System.nanoTime() - start) / 1e9;
+            log.info("Successfully cached embeddings for {} movies in {} s ({} batches of up to {} on {} threads, {} embeddings/s)",
+                    embeddings.size(), String.format("%.1f", seconds), batchCount, batchSize, threads,
+                    String.format("%.0f", warmupEmbedded.get() / Math.max(seconds, 1e-9)));
+            return embeddings;
         } catch (Exception e) {
             log.error("Failed to cache movie embeddings: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to cache movie embeddings", e);
         }
     }
 
-    private float[] getMovieEmbedding(int movieId) {
+    private void embedBatch(Predictor<NDList, NDList> batchPredictor, NDManager manager, int[] movieIds,
+                            Map<Integer, float[]> target) {
+        Map<Integer, float[]> embeddings = warmupBatchTimer.record(() -> predictBatch(batchPredictor, manager, movieIds));
+        target.putAll(embeddings);
+        warmupEmbedded.addAndGet(embeddings.size());
+        warmupEmbeddedCounter.increment(embeddings.size());
+        warmupFailedCounter.increment(movieIds.length - embeddings.size());
+    }
+
+    // Runs the whole batch as one tensor; falls back to one id at a time if the model rejects it
+    private Map<Integer, float[]> predictBatch(Predictor<NDList, NDList> batchPredictor, NDManager manager, int[] movieIds) {
+        Map<Integer, float[]> embeddings = new HashMap<>(movieIds.length * 2);
+        try (NDManager batchManager = manager.newSubManager()) {
+            long[] input = Arrays.stream(movieIds).asLongStream().toArray();
+            NDList output = batchPredictor.predict(new NDList(batchManager.create(input)));
+            output.attach(batchManager);
+
+            NDArray batchEmbeddings = output.get(0);
+            Shape shape = batchEmbeddings.getShape();
+            if (shape.dimension() == 2 && shape.get(0) == movieIds.length) {
+                int dimension = (int) shape.get(1);
+                float[] flat = batchEmbeddings.toFloatArray();
+                for (int i = 0; i < movieIds.length; i++) {
+                    embeddings.put(movieIds[i], Arrays.copyOfRange(flat, i * dimension, (i + 1) * dimension));
+                }
+                return embeddings;
+            }
+            log.debug("Model returned shape {} for a batch of {}, embedding one at a time", shape, movieIds.length);
+        } catch (Exception e) {
+            log.warn("Batch embedding of {} movies failed, embedding one at a time: {}", movieIds.length, e.getMessage());
+        }
+
+        for (int movieId : movieIds) {
+            float[] embedding = predictEmbedding(batchPredictor, manager, movieId);
+            if (embedding != null) {
+                embeddings.put(movieId, embedding);
+            }
+        }
+        return embeddings;
+    }
+
+    private EmbeddingStore buildEmbeddingStore(Map<Integer, float[]> embeddings) {
+        long start = System.nanoTime();
+        EmbeddingStore store = EmbeddingStore.from(embeddings);
+        log.info("Built embedding store with {} vectors of dimension {} in {} ms",
+                store.size(), store.dimension(), (System.nanoTime() - start) / 1_000_000);
+        return store;
+    }
+
+    private SimilarityIndex buildSimilarityIndex(EmbeddingStore store) {
+        if ("int8".equalsIgnoreCase(indexType) || "fp16".equalsIgnoreCase(indexType)) {
+            long start = System.nanoTime();
+            QuantizedIndex index = QuantizedIndex.build(store,
+                    "int8".equalsIgnoreCase(indexType) ? QuantizedIndex.Encoding.INT8 : QuantizedIndex.Encoding.FLOAT16,
+                    indexRerankFactor);
+            log.info("Built {} index over {} vectors ({} KiB, rerank factor {}) in {} ms", index.encoding(),
+                    store.size(), index.bytes() / 1024, indexRerankFactor, (System.nanoTime() - start) / 1_000_000);
+            return index;
+        }
+        if (!"hnsw".equalsIgnoreCase(indexType)) {
+            log.info("Using exact similarity search over {} vectors", store.size());
+            return store;
+        }
+
+        long start = System.nanoTime();
+        SimilarityIndex index = HnswIndex.build(store, indexM, indexEfConstruction, indexEfSearch);
+        log.info("Built HNSW index over {} vectors (M={}, efConstruction={}, efSearch={}) in {} ms",
+                store.size(), indexM, indexEfConstruction, indexEfSearch, (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    private double measureRecall(EmbeddingStore store, SimilarityIndex index) {
+        if (index == store || indexRecallSample <= 0) {
+            return Double.NaN;
+        }
+        long start = System.nanoTime();
+        double recall = IndexRecall.measure(store, index, indexRecallSample, SIMILAR_MOVIES_LIMIT, 42);
+        log.info("{} recall@{} against exact search: {} over {} queries in {} ms", indexTypeOf(index),
+                SIMILAR_MOVIES_LIMIT, String.format("%.4f", recall), Math.min(indexRecallSample, store.size()),
+                (System.nanoTime() - start) / 1_000_000);
+        return recall;
+    }
+
+    private static String indexTypeOf(SimilarityIndex index) {
+        if (index instanceof HnswIndex) {
+            return "hnsw";
+        }
+        if (index instanceof QuantizedIndex quantized) {
+            return quantized.encoding() == QuantizedIndex.Encoding.INT8 ? "int8" : "fp16";
+        }
+        return "exact";
+    }
+
+    private void startNeighbourPrecompute(ModelVersion loaded) {
+        if (loaded.neighbours() == null) {
+            return;
+        }
+        Thread coordinator = new Thread(() -> {
+            try {
+                fillNeighbours(loaded);
+            } catch (Exception e) {
+                log.error("Neighbour precompute stopped after {} of {} movies: {}",
+                        loaded.neighbours().completed(), loaded.neighbours().size(), e.getMessage(), e);
+            }
+        }, "neighbour-precompute");
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    // Blocks until every neighbour list of the version is filled
+    private void fillNeighbours(ModelVersion target) {
+        NeighbourTable table = target.neighbours();
+        int parallelism = precomputeParallelism > 0
+                ? precomputeParallelism
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        log.info("Precomputing neighbour lists for {} movies with parallelism {}", table.size(), parallelism);
         try {
-            // If we've already cached this embedding, return it
-            if (movieEmbeddings.containsKey(movieId)) {
-                return movieEmbeddings.get(movieId);
+            table.fill(pool, target.index());
+            log.info("Precomputed neighbour lists for {} movies in {} ms", table.completed(), table.elapsedMillis());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private float[] getMovieEmbedding(ModelVersion current, int movieId) {
+        // If we've already cached this embedding, return it
+        float[] cached = cacheEnabled ? movieEmbeddings.getIfPresent(movieId) : null;
+        if (cached != null) {
+            return cached;
+        }
+        float[] stored = current.index().vector(movieId);
+        if (stored != null) {
+            return stored;
+        }
+        // Served from a snapshot whose model is not loaded: nothing to infer with on a request
+        PredictorPool pool = current.predictors();
+        if (pool == null) {
+            return null;
+        }
+
+        // Concurrent misses for the same movie share one inference
+        return embeddingLoads.execute(flightKey(current, movieId), () -> {
+            float[] loaded = cacheEnabled ? movieEmbeddings.getIfPresent(movieId) : null;
+            return loaded != null ? loaded : inferEmbedding(current, pool, movieId);
+        });
+    }
+
+    private float[] inferEmbedding(ModelVersion current, PredictorPool pool, int movieId) {
+        float[] embArray;
+        long waitStart = System.nanoTime();
+        try (PredictorPool.Lease lease = pool.borrow()) {
+            predictorCheckoutTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+            embArray = predictEmbedding(lease.predictor(), current.manager(), movieId);
+        } catch (TimeoutException e) {
+            predictorTimeoutCounter.increment();
+            log.warn("No predictor free to embed movie {}: {}", movieId, e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (IllegalStateException e) {
+            // The version was swapped out and its predictors closed while this request held it
+            log.debug("Predictors of model version {} are closed, not embedding movie {}", current.number(), movieId);
+            return null;
+        }
+        if (embArray != null) {
+            // Cache the result, unless a reload replaced the model meanwhile
+            if (cacheEnabled && version == current) {
+                movieEmbeddings.put(movieId, embArray);
             }
+        }
+        return embArray;
+    }
 
+    // Input and output live in a sub-manager closed on return, so native memory does not grow per call
+    private float[] predictEmbedding(Predictor<NDList, NDList> moviePredictor, NDManager manager, int movieId) {
+        try (NDManager callManager = manager.newSubManager()) {
             // Create input for the model
             NDList input = new NDList();
-            input.add(manager.create(new long[] { movieId }));
+            input.add(callManager.create(new long[] { movieId }));
 
-            // Get prediction from model
-            NDList output = predictor.predict(input);
+            // Get prediction from model; the output comes back detached, so tie it to the call
+            NDList output = moviePredictor.predict(input);
+            output.attach(callManager);
 
             // Extract embedding from the output
             NDArray embedding = output.get(0);
 
             // Convert to float array
-            float[] embArray = embedding.toFloatArray();
-
-            // Cache the result
-            movieEmbeddings.put(movieId, embArray);
-
-            return embArray;
+            return embedding.toFloatArray();
         } catch (Exception e) {
             log.warn("Error getting embedding for movie {}: {}", movieId, e.getMessage());
             return null;
         }
     }
 
-    private List<Integer> findSimilarMoviesByEmbedding(int movieId, int topK) {
+    private List<Integer> findSimilarMovies(ModelVersion current, int movieId, int topK, CatalogFilter filter) {
+        if ("legacy".equalsIgnoreCase(similarityEngine)) {
+            return findSimilarMoviesByEmbedding(current, movieId, topK, filter);
+        }
+
+        EmbeddingStore store = current.store();
+        float[] query = current.index().vector(movieId);
+        if (query == null) {
+            float[] embedding = getMovieEmbedding(current, movieId);
+            if (embedding == null || embedding.length != store.dimension()) {
+                return Collections.emptyList();
+            }
+            query = VectorMath.normalizedCopy(embedding);
+        }
+        int[] similar = current.index().search(query, topK, movieId, filter);
+        return Arrays.stream(similar).boxed().collect(Collectors.toList());
+    }
+
+    // Original map-based scan, kept so results and cost can be compared with the store
+    private List<Integer> findSimilarMoviesByEmbedding(ModelVersion current, int movieId, int topK, CatalogFilter filter) {
         try {
             // Get the target movie embedding
-            float[] targetEmbedding = getMovieEmbedding(movieId);
+            float[] targetEmbedding = getMovieEmbedding(current, movieId);
             if (targetEmbedding == null) {
                 return Collections.emptyList();
             }
@@ -184,10 +1123,11 @@ public class RecommendationService {
             // Calculate cosine similarity with all other movies
             Map<Integer, Double> similarities = new HashMap<>();
 
-            for (Map.Entry<Integer, float[]> entry : movieEmbeddings.entrySet()) {
-                int candidateId = entry.getKey();
-                if (candidateId != movieId) { // Skip self
-                    float[] candidateEmbedding = entry.getValue();
+            EmbeddingStore store = current.store();
+            for (int row = 0; row < store.size(); row++) {
+                int candidateId = store.idAt(row);
+                if (candidateId != movieId && (filter == null || filter.acceptsRow(row))) { // Skip self
+                    float[] candidateEmbedding = store.vectorAt(row);
                     double similarity = cosineSimilarity(targetEmbedding, candidateEmbedding);
                     similarities.put(candidateId, similarity);
                 }
@@ -205,7 +1145,8 @@ public class RecommendationService {
         }
     }
 
-    private double cosineSimilarity(float[] vectorA, float[] vectorB) {
+    // package-private for the JMH benchmarks
+    static double cosineSimilarity(float[] vectorA, float[] vectorB) {
         if (vectorA.length != vectorB.length) {
             throw new IllegalArgumentException("Vectors must be of the same length");
         }
@@ -228,6 +1169,11 @@ public class RecommendationService {
     }
 
     private void populateSampleData() {
+        // The sample lists live only in the cache, so with it disabled there is nothing to serve
+        if (!cacheEnabled) {
+            log.info("Cache disabled, not populating sample recommendation data");
+            return;
+        }
         log.info("Populating sample recommendation data...");
 
         // Add sample data for common movie IDs (these are arbitrary examples)
@@ -239,7 +1185,7 @@ public class RecommendationService {
 
         // Add more popular movies
         for (int i = 1; i <= 100; i++) {
-            if (!similarMoviesCache.containsKey(i)) {
+            if (similarMoviesCache.getIfPresent(i) == null) {
                 List<Integer> similar = new ArrayList<>();
                 // Add 5-10 similar movies
                 int numSimilar = 5 + new Random().nextInt(6);
@@ -251,148 +1197,839 @@ public class RecommendationService {
             }
         }
 
-        log.info("Populated sample data with {} movie similarities", similarMoviesCache.size());
+        log.info("Populated sample data with {} movie similarities", similarMoviesCache.estimatedSize());
     }
 
+    // Caches only; the links and catalog scans are left to their schedule. Every user's next request
+    // recomputes afterwards, so only admins may call it
+    @PreAuthorize("hasRole('ADMIN')")
     public void clearCache() {
         log.info("Clearing recommendation caches...");
-        similarMoviesCache.clear();
-        movieEmbeddings.clear();
+        similarMoviesCache.invalidateAll();
+        movieEmbeddings.invalidateAll();
+        userCandidatePools.invalidateAll();
         log.info("Recommendation caches cleared successfully");
     }
 
+    public RecommendationStatusResponse getStatus() {
+        ModelVersion current = version;
+        EmbeddingStore store = current == null ? null : current.store();
+        NeighbourTable table = current == null ? null : current.neighbours();
+        return RecommendationStatusResponse.builder()
+                .modelState(modelState)
+                .warmupPercent(warmupTotal.get() == 0 ? 0.0 : warmupEmbedded.get() * 100.0 / warmupTotal.get())
+                .modelVersion(current == null ? 0 : current.number())
+                .reloading(reloading.get())
+                .embeddings(store == null ? 0 : store.size())
+                .embeddingsOffHeap(store != null && store.isOffHeap())
+                .indexType(current == null ? "exact" : indexTypeOf(current.index().base()))
+                .addedEmbeddings(current == null ? 0 : current.index().added())
+                .filterableTitles(current == null || current.attributes() == null ? 0 : current.attributes().listed())
+                .indexRecall(current == null || Double.isNaN(current.indexRecall()) ? null : current.indexRecall())
+                .movieLensLinks(movieLensLinks.size())
+                .coFavoriteItems(coFavorites == null ? 0 : coFavorites.items())
+                .precomputePercent(table == null ? 0.0 : table.progress() * 100.0)
+                .precomputeMillis(table == null ? 0 : table.elapsedMillis())
+                .precomputeComplete(table != null && table.isComplete())
+                .build();
+    }
+
     public List<MediaResponse> getRecommendationsForUser(int userId) {
+        return getRecommendationsForUser(userId, null);
+    }
+
+    /**
+     * @param modeName "vote", "mean", "recent" or "cofavorite"; null or blank uses recommendation.mode
+     */
+    public List<MediaResponse> getRecommendationsForUser(int userId, String modeName) {
+        return getRecommendationsForUser(userId, modeName, null);
+    }
+
+    /**
+     * Recommendations limited to titles the user's subscription can play and, when given, to one
+     * media type. Ineligible titles are skipped inside the similarity search, so the pool is as
+     * full as an unfiltered one.
+     *
+     * @param modeName  "vote", "mean", "recent" or "cofavorite"; null or blank uses recommendation.mode
+     * @param mediaType only recommend this type, or null for any
+     */
+    public List<MediaResponse> getRecommendationsForUser(int userId, String modeName, MediaType mediaType) {
+        RecommendationMode mode = RecommendationMode.fromName(
+                modeName == null || modeName.isBlank() ? defaultMode : modeName);
+        if (mode == null) {
+            throw new AppException(ErrorCode.INVALID_RECOMMENDATION_MODE);
+        }
+        long start = System.nanoTime();
+        // The scored pool only changes with the user's favorites and plan, so it is cached until they change
+        int accessMask = accessMask(userId);
+        long poolKey = poolKey(userId, mode, accessMask, mediaType);
+        List<Integer> candidatePool = cacheEnabled ? userCandidatePools.getIfPresent(poolKey) : null;
+        int poolSource = POOL_CACHED;
+        // The batch job stores the default request shape: no media type, the user's access when it ran
+        if (candidatePool == null && batchEnabled && mediaType == null) {
+            candidatePool = storedPool(userId, mode, accessMask);
+            poolSource = POOL_STORED;
+            if (candidatePool != null && cacheEnabled) {
+                userCandidatePools.put(poolKey, candidatePool);
+            }
+        }
+        if (candidatePool == null) {
+            // Nothing to score with yet, and nothing is cached so the first request after loading gets the model
+            if (modelState == ModelState.LOADING && mode != RecommendationMode.COFAVORITE) {
+                return fallbackToPopular("loading");
+            }
+            poolSource = POOL_COMPUTED;
+            // The whole pool is scored against one model version, even if a reload lands meanwhile
+            ModelVersion current = version;
+            candidatePool = computePool(current, userId, mode, eligibleFilter(current, accessMask, mediaType));
+            if (cacheEnabled && version == current) {
+                userCandidatePools.put(poolKey, candidatePool);
+            }
+        } else {
+            log.debug("Using cached pool of {} candidates for user {}", candidatePool.size(), userId);
+        }
+
+        if (candidatePool.isEmpty()) {
+            return fallbackToPopular("no-candidates");
+        }
+
+        // Shuffle the recommendations
+        List<Integer> recommendationCandidates = new ArrayList<>(candidatePool);
+        Collections.shuffle(recommendationCandidates);
+
+        // Take the first 10 after shuffling
+        List<Integer> topRecommendedIds = recommendationCandidates.stream()
+                .limit(10)
+                .collect(Collectors.toList());
+
+        log.debug("Selected 10 randomized recommendations from a pool of {} candidates",
+                recommendationCandidates.size());
+
+        // Lazy media collections need a session; scoring above holds no connection between its queries
+        List<MediaResponse> recommendations = readOnlyTransaction.execute(status -> {
+            // 3. Get media details for recommendations
+            long hydrationStart = System.nanoTime();
+            List<Media> recommendedMedia = mediaRepository.findAllById(topRecommendedIds);
+            long mappingStart = record(hydrationTimer, hydrationStart);
+
+            log.debug("Retrieved {} media details for recommendations", recommendedMedia.size());
+
+            // 4. Convert to response objects
+            List<MediaResponse> mapped = recommendedMedia.stream()
+                    .map(mediaMapper::toMediaResponse)
+                    .collect(Collectors.toList());
+            record(mappingTimer, mappingStart);
+            return mapped;
+        });
+        record(requestTimers.get(mode)[poolSource], start);
+
+        log.debug("Returning {} final recommendations for user {}", recommendations.size(), userId);
+        return recommendations;
+    }
+
+    /**
+     * Titles most similar to {@code mediaId} by embedding, best first. The neighbour list comes from
+     * the precomputed table or the cache, so the only database work is one batch query for the titles.
+     * Like the user rails, titles the user's subscription cannot play are left out.
+     *
+     * @param userId the viewer, or null to rank the whole catalog
+     * @return at most {@code limit} titles, capped at the neighbour list length; empty when the
+     * title has no MovieLens link or embedding
+     */
+    public List<MediaResponse> getSimilarMedia(int mediaId, int limit, Integer userId) {
+        long start = System.nanoTime();
+        try {
+            Integer movielensId = getMovieLensIdForMedia(mediaId);
+            if (movielensId == null) {
+                // Only a miss pays for telling an unknown id from an unlinked title
+                if (!mediaRepository.existsById(mediaId)) {
+                    throw new AppException(ErrorCode.MEDIA_NOT_FOUND);
+                }
+                return List.of();
+            }
+
+            ModelVersion current = version;
+            CatalogFilter filter = userId == null ? null : eligibleFilter(current, accessMask(userId), null);
+            List<Integer> similarMediaIds = new ArrayList<>(Math.min(limit, SIMILAR_MOVIES_LIMIT));
+            for (Integer similarMovieLensId : getEligibleSimilarMovies(current, movielensId, filter)) {
+                Integer similarMediaId = getMediaIdForMovieLensId(similarMovieLensId);
+                if (similarMediaId != null && similarMediaId != mediaId) {
+                    similarMediaIds.add(similarMediaId);
+                    if (similarMediaIds.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            if (similarMediaIds.isEmpty()) {
+                return List.of();
+            }
+
+            // Lazy media collections need a session, which is not there without open-session-in-view
+            return readOnlyTransaction.execute(status -> {
+                // findAllById does not keep the order, so the titles are put back in rank order
+                Map<Integer, Media> mediaById = new HashMap<>(similarMediaIds.size() * 2);
+                for (Media media : mediaRepository.findAllById(similarMediaIds)) {
+                    mediaById.put(media.getMediaId(), media);
+                }
+                List<MediaResponse> similar = new ArrayList<>(mediaById.size());
+                for (Integer similarMediaId : similarMediaIds) {
+                    Media media = mediaById.get(similarMediaId);
+                    if (media != null) {
+                        similar.add(mediaMapper.toMediaResponse(media));
+                    }
+                }
+                return similar;
+            });
+        } finally {
+            // Misses and unknown titles count too
+            record(similarMediaTimer, start);
+        }
+    }
+
+    // Uncached candidate pool of one mode; package-private for the offline evaluation harness
+    List<Integer> computePool(ModelVersion current, int userId, RecommendationMode mode, CatalogFilter filter) {
+        if (mode == RecommendationMode.COFAVORITE) {
+            return computeCoFavoriteCandidatePool(userId, filter);
+        }
+        if (mode == RecommendationMode.VOTE || current == null) {
+            return computeCandidatePool(current, userId, filter);
+        }
+        return computeProfileCandidatePool(current, userId, mode, filter);
+    }
+
+    /**
+     * Runs {@link #getRecommendationsForUser(int, String, MediaType)} on the recommendation executor.
+     * Requests that cannot be queued, fail, or miss the deadline complete with popular titles.
+     */
+    public CompletableFuture<List<MediaResponse>> getRecommendationsForUserAsync(int userId, String modeName,
+                                                                                 MediaType mediaType) {
+        // Reject a bad mode with a 400 now rather than hiding it behind the fallback
+        if (modeName != null && !modeName.isBlank() && RecommendationMode.fromName(modeName) == null) {
+            throw new AppException(ErrorCode.INVALID_RECOMMENDATION_MODE);
+        }
+
+        CompletableFuture<List<MediaResponse>> recommendations;
+        try {
+            recommendations = CompletableFuture.supplyAsync(
+                    () -> getRecommendationsForUser(userId, modeName, mediaType), requestExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Recommendation executor is full, serving popular titles to user {}", userId);
+            return CompletableFuture.supplyAsync(() -> fallbackToPopular("rejected"));
+        }
+        // The computation keeps running past the deadline and still warms the caches for the next call
+        return recommendations
+                .orTimeout(asyncDeadline.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionallyAsync(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        log.warn("Recommendations for user {} missed the {} ms deadline, serving popular titles",
+                                userId, asyncDeadline.toMillis());
+                        return fallbackToPopular("deadline");
+                    }
+                    log.error("Recommendations for user {} failed, serving popular titles: {}", userId,
+                            cause.getMessage(), cause);
+                    return fallbackToPopular("error");
+                });
+    }
+
+    private List<MediaResponse> fallbackToPopular(String reason) {
+        meterRegistry.counter("recommendation.fallbacks", "reason", reason).increment();
+        return getPopularRecommendations();
+    }
+
+    /**
+     * Brings a created or updated media into the live index in the background: picks up its
+     * MovieLens link, embeds it if the model has not seen that id yet and patches the neighbour
+     * lists it now belongs in. Titles already embedded need nothing beyond the link and their row
+     * of the catalog bitsets.
+     *
+     * @param accessLevel the media's access level after the change
+     * @param mediaType   the media's type after the change
+     */
+    public void onMediaChanged(int mediaId, String accessLevel, MediaType mediaType) {
+        String type = mediaType == null ? null : mediaType.name();
+        try {
+            backgroundExecutor.execute(() -> indexMedia(mediaId, accessLevel, type));
+        } catch (RejectedExecutionException e) {
+            log.warn("Cannot schedule indexing of media {}: {}", mediaId, e.getMessage());
+        }
+    }
+
+    private void indexMedia(int mediaId, String accessLevel, String mediaType) {
+        try {
+            List<Integer> linked = jdbcTemplate.queryForList(
+                    "SELECT movieId FROM movielens_links WHERE tmdbId = ? ORDER BY movieId LIMIT 1",
+                    Integer.class, mediaId);
+            int movielensId = linked.isEmpty() ? MovieLensLinks.NO_ID : linked.get(0);
+            if (movielensId == MovieLensLinks.NO_ID) {
+                log.debug("Media {} has no MovieLens link, nothing to index", mediaId);
+            } else {
+                movieLensLinks = movieLensLinks.withLink(movielensId, mediaId);
+            }
+
+            ModelVersion current = version;
+            if (current == null) {
+                return;
+            }
+            if (movielensId != MovieLensLinks.NO_ID && !current.index().contains(movielensId)) {
+                addToIndex(current, mediaId, movielensId);
+            }
+            updateCatalogAttributes(current, mediaId, movielensId, accessLevel, mediaType);
+        } catch (Exception e) {
+            log.error("Failed to index media {}: {}", mediaId, e.getMessage(), e);
+        }
+    }
+
+    // Records one media row in the live bitsets. Pools filtered on the old values are only dropped when
+    // an existing title's access level or type changed; a new title just joins later pools
+    private void updateCatalogAttributes(ModelVersion current, int mediaId, int movielensId, String accessLevel,
+                                         String mediaType) {
+        CatalogAttributes attributes = current.attributes();
+        if (attributes == null) {
+            return;
+        }
+        // Only the media a MovieLens id maps back to is recommended as that movie
+        int movieId = movielensId != MovieLensLinks.NO_ID && movieLensLinks.mediaIdForMovieLensId(movielensId) == mediaId
+                ? movielensId : MovieLensLinks.NO_ID;
+        String[] previous = attributes.mediaAttributes(mediaId);
+        CatalogAttributes updated = attributes.withMedia(mediaId, movieId, accessLevel, mediaType,
+                movieId != MovieLensLinks.NO_ID && current.index().contains(movieId));
+        boolean changed = previous != null && !Arrays.equals(previous, updated.mediaAttributes(mediaId));
+        if (!changed && previous != null && (movieId == MovieLensLinks.NO_ID || attributes.lists(movieId))) {
+            return;
+        }
+        current.attributes(updated);
+        if (changed) {
+            userCandidatePools.invalidateAll();
+        }
+    }
+
+    private void addToIndex(ModelVersion current, int mediaId, int movielensId) {
+        // A version served from a snapshot loads its model the first time it meets a movie it lacks
+        if (current.predictors() == null && (!cacheEnabled || movieEmbeddings.getIfPresent(movielensId) == null)) {
+            attachPredictors(current);
+        }
+        float[] embedding = getMovieEmbedding(current, movielensId);
+        if (embedding == null || embedding.length != current.store().dimension()) {
+            log.warn("Could not embed MovieLens id {} for media {}", movielensId, mediaId);
+            return;
+        }
+
+        long start = System.nanoTime();
+        int[] affected = current.addEmbedding(movielensId, VectorMath.normalizedCopy(embedding));
+        movieEmbeddings.invalidate(movielensId);
+        for (int movieId : affected) {
+            similarMoviesCache.invalidate(movieId);
+        }
+        log.info("Indexed media {} as MovieLens id {}, updated {} neighbour lists in {} ms",
+                mediaId, movielensId, affected.length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Drops the user's cached access mask and pools after a plan change. Stored rows need no
+     * eviction: they record the access they were scored with and stop matching on their own.
+     */
+    public void onSubscriptionChanged(int userId) {
+        userAccessMasks.invalidate(userId);
+        userCandidatePools.asMap().keySet().removeIf(key -> (key >>> 16) == userId);
+    }
+
+    public void evictUserRecommendations(int userId) {
+        userCandidatePools.asMap().keySet().removeIf(key -> (key >>> 16) == userId);
+        // The stored list was scored from the old favorites; the next batch run stores a new one
+        if (batchEnabled) {
+            try {
+                userRecommendationStore.invalidate(userId, LocalDateTime.now());
+            } catch (DataAccessException e) {
+                log.warn("Failed to delete stored recommendations of user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    // The user's pool from user_recommendations if it was scored recently, in this mode and with the user's current access
+    private List<Integer> storedPool(int userId, RecommendationMode mode, int accessMask) {
+        try {
+            List<UserRecommendation> rows = userRecommendationStore.findByUserId(userId);
+            if (rows.isEmpty()) {
+                return null;
+            }
+            UserRecommendation first = rows.get(0);
+            if (!mode.name().equals(first.getMode()) || first.getAccessMask() != accessMask
+                    || first.getComputedAt().isBefore(LocalDateTime.now().minus(batchMaxAge))) {
+                return null;
+            }
+            return rows.stream().map(UserRecommendation::getMediaId).toList();
+        } catch (DataAccessException e) {
+            log.warn("Failed to read stored recommendations of user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Scores the pool a request in the default mode with no media type would get, as rows for
+     * user_recommendations; empty when the user has no candidates. Used by the batch job.
+     */
+    public List<UserRecommendation> computeStoredRecommendations(int userId, LocalDateTime computedAt) {
+        RecommendationMode mode = RecommendationMode.fromName(defaultMode);
+        if (mode == null) {
+            throw new AppException(ErrorCode.INVALID_RECOMMENDATION_MODE);
+        }
+        int accessMask = accessMask(userId);
+        ModelVersion current = version;
+        List<Integer> pool = computePool(current, userId, mode, eligibleFilter(current, accessMask, null));
+
+        List<UserRecommendation> rows = new ArrayList<>(pool.size());
+        for (int position = 0; position < pool.size(); position++) {
+            rows.add(UserRecommendation.builder()
+                    .userId(userId)
+                    .position(position)
+                    .mediaId(pool.get(position))
+                    .mode(mode.name())
+                    .accessMask(accessMask)
+                    .computedAt(computedAt)
+                    .build());
+        }
+        return rows;
+    }
+
+    // User id, then the access levels the user can play, the media type (0 for any) and the mode
+    private static long poolKey(int userId, RecommendationMode mode, int accessMask, MediaType mediaType) {
+        int type = mediaType == null ? 0 : mediaType.ordinal() + 1;
+        return ((long) userId << 16) | (accessMask << 8) | (type << 4) | mode.ordinal();
+    }
+
+    // The user is only loaded when their mask is not cached
+    private int accessMask(int userId) {
+        Integer cached = cacheEnabled ? userAccessMasks.getIfPresent(userId) : null;
+        if (cached != null) {
+            return cached;
+        }
+        int accessMask = accessMask(userRepository.findById(userId).orElse(null));
+        if (cacheEnabled) {
+            userAccessMasks.put(userId, accessMask);
+        }
+        return accessMask;
+    }
+
+    // One bit per access level a subscription can unlock; levels outside these count as VIP
+    private int accessMask(User user) {
+        if (user == null) {
+            return 0;
+        }
+        int mask = 0;
+        for (int i = 0; i < ACCESS_LEVELS.length; i++) {
+            if (userService.canAccessMedia(user, ACCESS_LEVELS[i])) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Titles the user can play, of {@code mediaType} when given. Null, meaning the whole catalog,
+     * while no catalog bitsets are loaded; a user without an active subscription can play nothing,
+     * so they too are recommended from the whole catalog.
+     */
+    private CatalogFilter eligibleFilter(ModelVersion current, int accessMask, MediaType mediaType) {
+        CatalogAttributes attributes = current == null ? null : current.attributes();
+        if (attributes == null) {
+            return null;
+        }
+        Set<String> levels = new HashSet<>();
+        for (String level : attributes.accessLevels()) {
+            int bit = Arrays.asList(ACCESS_LEVELS).indexOf(level);
+            if ((accessMask & (1 << (bit < 0 ? ACCESS_LEVELS.length - 1 : bit))) != 0) {
+                levels.add(level);
+            }
+        }
+        return attributes.filter(levels.isEmpty() ? null : levels,
+                mediaType == null ? null : Set.of(mediaType.name()));
+    }
+
+    /**
+     * Candidates nearest to the user's taste profile: the (optionally recency-weighted) mean of the
+     * favorites' normalized embeddings. One index search whatever the number of favorites.
+     */
+    private List<Integer> computeProfileCandidatePool(ModelVersion current, int userId, RecommendationMode mode,
+                                                      CatalogFilter filter) {
+        long start = System.nanoTime();
+        List<Favorite> favorites = favoriteRepository.findByUserId(userId);
+        start = record(favoritesTimer, start);
+        if (favorites.isEmpty()) {
+            log.debug("No favorites found for user {}, returning popular recommendations", userId);
+            return List.of();
+        }
+
+        EmbeddingStore store = current.store();
+        float[] profile = new float[store.dimension()];
+        Set<Integer> favoriteMediaIds = new HashSet<>(favorites.size() * 2);
+        LocalDateTime now = LocalDateTime.now();
+        int pooled = 0;
+        long translationNanos = 0;
+        for (Favorite favorite : favorites) {
+            favoriteMediaIds.add(favorite.getMediaId());
+            long translationStart = System.nanoTime();
+            Integer movielensId = getMovieLensIdForMedia(favorite.getMediaId());
+            translationNanos += System.nanoTime() - translationStart;
+            if (movielensId == null) {
+                continue;
+            }
+            float[] embedding = current.index().vector(movielensId);
+            if (embedding == null) {
+                float[] inferred = getMovieEmbedding(current, movielensId);
+                if (inferred == null || inferred.length != profile.length) {
+                    continue;
+                }
+                embedding = VectorMath.normalizedCopy(inferred);
+            }
+            float weight = mode == RecommendationMode.RECENT ? recencyWeight(favorite.getAddedDate(), now) : 1f;
+            for (int i = 0; i < profile.length; i++) {
+                profile[i] += weight * embedding[i];
+            }
+            pooled++;
+        }
+        if (pooled == 0) {
+            log.debug("None of the {} favorites of user {} has an embedding, returning popular recommendations",
+                    favorites.size(), userId);
+            return List.of();
+        }
+        VectorMath.normalize(profile, 0, profile.length);
+        long searchStart = System.nanoTime();
+        scoringTimer.record(searchStart - start - translationNanos, TimeUnit.NANOSECONDS);
+
+        // Over-fetch by the pooled favorites, which are usually the profile's nearest neighbours
+        int[] similar = current.index().search(profile, CANDIDATE_POOL_SIZE + pooled, MovieLensLinks.NO_ID, filter);
+        long translationStart = record(profileNeighboursTimer, searchStart);
+        List<Integer> candidates = new ArrayList<>(CANDIDATE_POOL_SIZE);
+        for (int similarMovieLensId : similar) {
+            Integer mediaId = getMediaIdForMovieLensId(similarMovieLensId);
+            if (mediaId != null && !favoriteMediaIds.contains(mediaId)) {
+                candidates.add(mediaId);
+                if (candidates.size() == CANDIDATE_POOL_SIZE) {
+                    break;
+                }
+            }
+        }
+        translationTimer.record(System.nanoTime() - translationStart + translationNanos, TimeUnit.NANOSECONDS);
+        log.debug("Profile of {} favorites ({}) gave {} candidates for user {}", pooled, mode, candidates.size(), userId);
+        return List.copyOf(candidates);
+    }
+
+    // Favorites without a date count as if they were added just now
+    private float recencyWeight(LocalDateTime addedDate, LocalDateTime now) {
+        if (addedDate == null || profileHalfLife.isZero() || profileHalfLife.isNegative()) {
+            return 1f;
+        }
+        double ageSeconds = Math.max(0, Duration.between(addedDate, now).getSeconds());
+        return (float) Math.pow(0.5, ageSeconds / profileHalfLife.getSeconds());
+    }
+
+    // Top-scored candidates for a user, or an empty list when popular titles should be served instead
+    private List<Integer> computeCandidatePool(ModelVersion current, int userId, CatalogFilter filter) {
         // 1. Get user's favorite movies
+        long start = System.nanoTime();
         List<Integer> favoriteMediaIds = favoriteRepository.findMediaIdsByUserId(userId);
+        start = record(favoritesTimer, start);
 
-        log.info("Finding recommendations for user {} with {} favorites", userId, favoriteMediaIds.size());
+        log.debug("Finding recommendations for user {} with {} favorites", userId, favoriteMediaIds.size());
 
         if (favoriteMediaIds.isEmpty()) {
             // Return popular movies if user has no favorites
-            log.info("No favorites found for user {}, returning popular recommendations", userId);
-            return getPopularRecommendations();
+            log.debug("No favorites found for user {}, returning popular recommendations", userId);
+            return List.of();
         }
 
         // 2. For each favorite, get similar movies using the mapping table and ML model
         Map<Integer, Double> recommendationScores = new HashMap<>();
 
+        // Lookups and translation are timed per favorite; what is left of the pool's time is scoring
+        long translationNanos = 0;
+        long neighbourNanos = 0;
+        int[] similarMediaIds = new int[SIMILAR_MOVIES_LIMIT];
+        CoFavoriteIndex coFavoriteIndex = coFavoriteWeight > 0 ? coFavorites : null;
         for (Integer mediaId : favoriteMediaIds) {
+            // Titles favorited together with this one count next to its embedding neighbours
+            if (coFavoriteIndex != null) {
+                long lookupStart = System.nanoTime();
+                int[] coFavoriteIds = coFavoriteIndex.neighbours(mediaId, SIMILAR_MOVIES_LIMIT, acceptsMedia(filter), null);
+                neighbourNanos += record(coFavoriteNeighboursTimer, lookupStart) - lookupStart;
+                for (int coFavorite : coFavoriteIds) {
+                    recommendationScores.merge(coFavorite, coFavoriteWeight, Double::sum);
+                }
+            }
+
             // Find TMDB to MovieLens mapping
+            long translationStart = System.nanoTime();
             Integer movielensId = getMovieLensIdForMedia(mediaId);
+            long lookupStart = System.nanoTime();
+            translationNanos += lookupStart - translationStart;
 
             if (movielensId != null) {
                 log.debug("Found MovieLens ID {} for media ID {}", movielensId, mediaId);
 
                 // Get similar movies based on MovieLens ID
-                List<Integer> similarMovieLensIds = getSimilarMovies(movielensId);
+                List<Integer> similarMovieLensIds = getEligibleSimilarMovies(current, movielensId, filter);
+                translationStart = System.nanoTime();
+                neighbourNanos += translationStart - lookupStart;
                 log.debug("Found {} similar MovieLens IDs for {}", similarMovieLensIds.size(), movielensId);
 
                 // Map MovieLens IDs back to Media IDs
+                if (similarMediaIds.length < similarMovieLensIds.size()) {
+                    similarMediaIds = new int[similarMovieLensIds.size()];
+                }
+                int translated = 0;
                 for (Integer similarMovieLensId : similarMovieLensIds) {
                     Integer similarMediaId = getMediaIdForMovieLensId(similarMovieLensId);
                     if (similarMediaId != null) {
-                        // Increment score for this recommendation
-                        recommendationScores.put(similarMediaId,
-                                recommendationScores.getOrDefault(similarMediaId, 0.0) + 1.0);
+                        similarMediaIds[translated++] = similarMediaId;
                     }
                 }
+                translationNanos += System.nanoTime() - translationStart;
+
+                // Increment score for each recommendation
+                for (int i = 0; i < translated; i++) {
+                    recommendationScores.merge(similarMediaIds[i], 1.0, Double::sum);
+                }
             } else {
                 log.debug("No MovieLens ID found for media ID {}", mediaId);
             }
         }
 
-        log.info("Found {} raw recommendations before filtering", recommendationScores.size());
+        log.debug("Found {} raw recommendations before filtering", recommendationScores.size());
 
         // Remove movies the user has already favorited
         favoriteMediaIds.forEach(recommendationScores::remove);
 
-        log.info("Found {} recommendations after removing user favorites", recommendationScores.size());
+        log.debug("Found {} recommendations after removing user favorites", recommendationScores.size());
 
         if (recommendationScores.isEmpty()) {
-            log.info("No recommendations found after filtering, returning popular recommendations");
-            return getPopularRecommendations();
+            log.debug("No recommendations found after filtering, returning popular recommendations");
+            return List.of();
         }
 
         // Get top scored recommendations
         List<Integer> recommendationCandidates = recommendationScores.entrySet().stream()
                 .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
-                .limit(30)
+                .limit(CANDIDATE_POOL_SIZE)
                 .map(Map.Entry::getKey)
                 .collect(Collectors.toList());
 
-        // Shuffle the recommendations
-        Collections.shuffle(recommendationCandidates);
+        translationTimer.record(translationNanos, TimeUnit.NANOSECONDS);
+        scoringTimer.record(System.nanoTime() - start - translationNanos - neighbourNanos, TimeUnit.NANOSECONDS);
+        return List.copyOf(recommendationCandidates);
+    }
 
-        // Take the first 10 after shuffling
-        List<Integer> topRecommendedIds = recommendationCandidates.stream()
-                .limit(10)
-                .collect(Collectors.toList());
+    /**
+     * Titles most often favorited together with the user's favorites, each summed over the
+     * favorites by cosine. Runs without the model, for titles with or without a MovieLens link.
+     */
+    private List<Integer> computeCoFavoriteCandidatePool(int userId, CatalogFilter filter) {
+        CoFavoriteIndex coFavoriteIndex = coFavorites;
+        long start = System.nanoTime();
+        List<Integer> favoriteMediaIds = favoriteRepository.findMediaIdsByUserId(userId);
+        start = record(favoritesTimer, start);
+        if (coFavoriteIndex == null || favoriteMediaIds.isEmpty()) {
+            return List.of();
+        }
 
-        log.info("Selected 10 randomized recommendations from a pool of {} candidates",
-                recommendationCandidates.size());
+        Map<Integer, Double> scores = new HashMap<>();
+        float[] neighbourScores = new float[SIMILAR_MOVIES_LIMIT];
+        long neighbourNanos = 0;
+        for (Integer mediaId : favoriteMediaIds) {
+            long lookupStart = System.nanoTime();
+            int[] neighbours = coFavoriteIndex.neighbours(mediaId, SIMILAR_MOVIES_LIMIT, acceptsMedia(filter), neighbourScores);
+            neighbourNanos += record(coFavoriteNeighboursTimer, lookupStart) - lookupStart;
+            for (int i = 0; i < neighbours.length; i++) {
+                scores.merge(neighbours[i], (double) neighbourScores[i], Double::sum);
+            }
+        }
+        favoriteMediaIds.forEach(scores::remove);
 
-        // 3. Get media details for recommendations
-        List<Media> recommendedMedia = mediaRepository.findAllById(topRecommendedIds);
+        List<Integer> candidates = scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
+                .limit(CANDIDATE_POOL_SIZE)
+                .map(Map.Entry::getKey)
+                .toList();
+        scoringTimer.record(System.nanoTime() - start - neighbourNanos, TimeUnit.NANOSECONDS);
+        return candidates;
+    }
 
-        log.info("Retrieved {} media details for recommendations", recommendedMedia.size());
+    private static IntPredicate acceptsMedia(CatalogFilter filter) {
+        return filter == null ? null : filter::acceptsMedia;
+    }
 
-        // 4. Convert to response objects
-        List<MediaResponse> recommendations = recommendedMedia.stream()
-                .map(mediaMapper::toMediaResponse)
-                .collect(Collectors.toList());
+    /** Whether {@link #onFavoriteChanged} needs the user's other favorites, which only the co-favorite index reads. */
+    public boolean tracksCoFavorites() {
+        return coFavorites != null;
+    }
 
-        log.info("Returning {} final recommendations for user {}", recommendations.size(), userId);
-        return recommendations;
+    /**
+     * Applies a committed favorite toggle to the co-favorite index and drops the user's cached pools.
+     *
+     * @param others the user's other favorites at the time of the toggle; may be empty unless
+     *               {@link #tracksCoFavorites()}
+     */
+    public void onFavoriteChanged(int userId, int mediaId, boolean added, List<Integer> others) {
+        CoFavoriteIndex coFavoriteIndex = coFavorites;
+        if (coFavoriteIndex != null) {
+            int[] otherIds = others.stream().mapToInt(Integer::intValue).filter(id -> id != mediaId).toArray();
+            if (added) {
+                coFavoriteIndex.add(mediaId, otherIds);
+            } else {
+                coFavoriteIndex.remove(mediaId, otherIds);
+            }
+        }
+        evictUserRecommendations(userId);
+    }
+
+    /**
+     * Rebuilds the co-favorite index in one streaming pass over the favorites table and swaps it
+     * in. Toggles that land while the pass runs may be missed by the new index; the next rebuild
+     * picks them up.
+     */
+    @Scheduled(fixedDelayString = "${recommendation.cofavorite.refresh-interval:PT24H}",
+            initialDelayString = "${recommendation.cofavorite.refresh-interval:PT24H}")
+    public void rebuildCoFavorites() {
+        if (!coFavoriteEnabled) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            CoFavoriteIndex.Builder builder = CoFavoriteIndex.builder(coFavoriteNeighbours, coFavoriteMaxUserFavorites);
+            jdbcTemplate.query("SELECT UserID, MediaID FROM favorites ORDER BY UserID, AddedDate DESC",
+                    (RowCallbackHandler) rs -> builder.accept(rs.getInt(1), rs.getInt(2)));
+            CoFavoriteIndex built = builder.build();
+            coFavorites = built;
+            log.info("Built co-favorite index for {} titles from {} users in {} ms", built.items(), builder.users(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Failed to build the co-favorite index: {}", e.getMessage());
+        }
     }
 
     private List<MediaResponse> getPopularRecommendations() {
-        // Simple popularity-based fallback
-        List<MediaResponse> popularMedia = mediaRepository.findTopByViewCount(10).stream()
-                .map(mediaMapper::toMediaResponse)
-                .collect(Collectors.toList());
+        // Popularity-based fallback, precomputed on a schedule
+        List<MediaResponse> popularMedia = popularMediaService.getPopular();
 
-        log.info("Returning {} popular recommendations", popularMedia.size());
+        log.debug("Returning {} popular recommendations", popularMedia.size());
         return popularMedia;
     }
 
-    private Integer getMovieLensIdForMedia(Integer mediaId) {
+    @Scheduled(fixedDelayString = "${recommendation.links.refresh-interval:PT1H}",
+            initialDelayString = "${recommendation.links.refresh-interval:PT1H}")
+    public void refreshMovieLensLinks() {
         try {
-            Integer movielensId = jdbcTemplate.queryForObject(
-                    "SELECT movieId FROM movielens_links WHERE tmdbId = ?",
-                    Integer.class,
-                    mediaId);
-            return movielensId;
+            long start = System.nanoTime();
+            Integer rowCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM movielens_links", Integer.class);
+            MovieLensLinks.Builder builder = MovieLensLinks.builder(rowCount == null ? 0 : rowCount);
+            // Ordered so the first row wins for ids that appear more than once
+            jdbcTemplate.query(
+                    "SELECT movieId, tmdbId FROM movielens_links WHERE tmdbId IS NOT NULL ORDER BY movieId",
+                    (RowCallbackHandler) rs -> builder.link(rs.getInt(1), rs.getInt(2)));
+            movieLensLinks = builder.build();
+            log.info("Loaded {} MovieLens links in {} ms", movieLensLinks.size(), (System.nanoTime() - start) / 1_000_000);
         } catch (Exception e) {
-            log.debug("No MovieLens mapping found for media ID {}: {}", mediaId, e.getMessage());
-            return null;
+            log.warn("Failed to load MovieLens links, keeping the previous {}: {}", movieLensLinks.size(), e.getMessage());
         }
+        refreshCatalogAttributes(version);
     }
 
-    private Integer getMediaIdForMovieLensId(Integer movielensId) {
+    /**
+     * Rebuilds the access level and media type bitsets of {@code target} from the Media table and
+     * the current links. The previous bitsets stay in place if the query fails.
+     */
+    private void refreshCatalogAttributes(ModelVersion target) {
+        if (target == null) {
+            return;
+        }
         try {
-            Integer mediaId = jdbcTemplate.queryForObject(
-                    "SELECT tmdbId FROM movielens_links WHERE movieId = ?",
-                    Integer.class,
-                    movielensId);
-            return mediaId;
+            long start = System.nanoTime();
+            MovieLensLinks links = movieLensLinks;
+            CatalogAttributes.Builder builder = CatalogAttributes.builder(target.store());
+            jdbcTemplate.query("SELECT MediaID, AccessLevel, MediaType FROM Media", (RowCallbackHandler) rs -> {
+                int mediaId = rs.getInt(1);
+                int movielensId = links.movieLensIdForMedia(mediaId);
+                // Only the media a MovieLens id maps back to, as that is the title it is recommended as
+                builder.media(mediaId, rs.getString(2), rs.getString(3));
+                if (movielensId != MovieLensLinks.NO_ID && links.mediaIdForMovieLensId(movielensId) == mediaId) {
+                    builder.add(movielensId, rs.getString(2), rs.getString(3), target.index().contains(movielensId));
+                }
+            });
+            CatalogAttributes attributes = builder.build();
+            target.attributes(attributes);
+            log.info("Built catalog bitsets for {} titles over {} access levels in {} ms", attributes.listed(),
+                    attributes.accessLevels().size(), (System.nanoTime() - start) / 1_000_000);
         } catch (Exception e) {
-            log.debug("No media mapping found for MovieLens ID {}: {}", movielensId, e.getMessage());
-            return null;
+            log.warn("Failed to build catalog bitsets for model version {}: {}", target.number(), e.getMessage());
         }
     }
 
-    private List<Integer> getSimilarMovies(Integer movielensId) {
+    private Integer getMovieLensIdForMedia(Integer mediaId) {
+        int movielensId = movieLensLinks.movieLensIdForMedia(mediaId);
+        return movielensId == MovieLensLinks.NO_ID ? null : movielensId;
+    }
+
+    private Integer getMediaIdForMovieLensId(Integer movielensId) {
+        int mediaId = movieLensLinks.mediaIdForMovieLensId(movielensId);
+        return mediaId == MovieLensLinks.NO_ID ? null : mediaId;
+    }
+
+    private List<Integer> getSimilarMovies(ModelVersion current, Integer movielensId) {
+        long start = System.nanoTime();
+        // Precomputed lists first; rows the background job has not reached yet fall through
+        NeighbourTable table = current == null ? null : current.neighbours();
+        if (table != null) {
+            int[] precomputed = table.get(movielensId);
+            if (precomputed != null) {
+                List<Integer> similar = Arrays.stream(precomputed).boxed().collect(Collectors.toList());
+                record(precomputedNeighboursTimer, start);
+                return similar;
+            }
+        }
+
         // Check cache first
-        if (similarMoviesCache.containsKey(movielensId)) {
-            return similarMoviesCache.get(movielensId);
+        List<Integer> cached = cacheEnabled ? similarMoviesCache.getIfPresent(movielensId) : null;
+        if (cached != null) {
+            record(cachedNeighboursTimer, start);
+            return cached;
+        }
+
+        // Sample data only: no model to compute with
+        if (current == null) {
+            return Collections.emptyList();
+        }
+
+        // Concurrent misses for the same movie wait for the first caller's search
+        List<Integer> loaded = similarMoviesLoads.execute(flightKey(current, movielensId), () -> {
+            List<Integer> cachedMeanwhile = cacheEnabled ? similarMoviesCache.getIfPresent(movielensId) : null;
+            return cachedMeanwhile != null ? cachedMeanwhile : computeSimilarMovies(current, movielensId);
+        });
+        record(computedNeighboursTimer, start);
+        return loaded;
+    }
+
+    /**
+     * The shared neighbour list when every title on it passes {@code filter}, otherwise a filtered
+     * search, so a favorite contributes as many candidates as it would without the filter.
+     */
+    private List<Integer> getEligibleSimilarMovies(ModelVersion current, int movielensId, CatalogFilter filter) {
+        List<Integer> similar = getSimilarMovies(current, movielensId);
+        if (filter == null || current == null || similar.stream().allMatch(filter::accepts)) {
+            return similar;
         }
+        long start = System.nanoTime();
+        List<Integer> filtered = findSimilarMovies(current, movielensId, SIMILAR_MOVIES_LIMIT, filter);
+        record(filteredNeighboursTimer, start);
+        return filtered;
+    }
 
+    private List<Integer> computeSimilarMovies(ModelVersion current, int movielensId) {
         try {
             // Use the model to find similar movies
-            List<Integer> similarMovies = findSimilarMoviesByEmbedding(movielensId, 20);
+            List<Integer> similarMovies = findSimilarMovies(current, movielensId, SIMILAR_MOVIES_LIMIT, null);
 
-            // Cache the result for future use
-            if (!similarMovies.isEmpty()) {
+            // Cache the result for future use, unless a reload replaced the model meanwhile
+            if (cacheEnabled && !similarMovies.isEmpty() && version == current) {
                 similarMoviesCache.put(movielensId, similarMovies);
             }
 
@@ -402,4 +2039,9 @@ public class RecommendationService {
             return Collections.emptyList();
         }
     }
+
+    // Loads are keyed by model version too, so a reload never hands out the previous model's result
+    private static long flightKey(ModelVersion current, int movieId) {
+        return ((long) current.number() << 32) | (movieId & 0xFFFFFFFFL);
+    }
 }
\ No newline at end of file
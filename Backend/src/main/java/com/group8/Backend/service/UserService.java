@@ -15,6 +15,7 @@ import com.group8.Backend.repository.RoleRepository;
 import com.group8.Backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -35,6 +36,8 @@ public class UserService {
     private final UserMapper userMapper;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    // Looked up on use: RecommendationService depends on this service
+    private final ObjectProvider<RecommendationService> recommendationService;
 
     public User getUserByUsername(String username) {
         return userRepository.findByUsername(username)
@@ -130,6 +133,8 @@ public class UserService {
         user.setSubscriptionExpiry(LocalDate.now().plusMonths(1));
         
         user = userRepository.save(user);
+        int userId = user.getUserID();
+        recommendationService.ifAvailable(service -> service.onSubscriptionChanged(userId));
         return userMapper.toUserResponse(user);
     }
 
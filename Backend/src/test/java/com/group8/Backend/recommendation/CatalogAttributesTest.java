@@ -0,0 +1,70 @@
+package com.group8.Backend.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogAttributesTest {
+    final EmbeddingStore store = TestEmbeddings.store(100, 8, 11);
+
+    // Every stored movie linked to media id movieId + 1000, FREE movies except every tenth, which is VIP
+    CatalogAttributes attributes() {
+        CatalogAttributes.Builder builder = CatalogAttributes.builder(store);
+        for (int row = 0; row < store.size(); row++) {
+            String level = row % 10 == 0 ? "VIP" : "FREE";
+            builder.media(store.idAt(row) + 1000, level, "Movie");
+            builder.add(store.idAt(row), level, "Movie", true);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void withMediaMovesOneRowAndLeavesTheOriginalIntact() {
+        CatalogAttributes attributes = attributes();
+        int movieId = store.idAt(3);
+        CatalogFilter freeBefore = attributes.filter(Set.of("FREE"), null);
+
+        CatalogAttributes updated = attributes.withMedia(movieId + 1000, movieId, "vip", "Series", true);
+
+        assertThat(updated.mediaAttributes(movieId + 1000)).containsExactly("VIP", "Series");
+        assertThat(updated.filter(Set.of("FREE"), null).accepts(movieId)).isFalse();
+        assertThat(updated.filter(Set.of("VIP"), Set.of("Series")).accepts(movieId)).isTrue();
+        assertThat(updated.filter(Set.of("FREE"), null).cardinality()).isEqualTo(freeBefore.cardinality() - 1);
+        assertThat(updated.filter(Set.of("VIP"), null).acceptsMedia(movieId + 1000)).isTrue();
+        assertThat(attributes.mediaAttributes(movieId + 1000)).containsExactly("FREE", "Movie");
+        assertThat(attributes.filter(Set.of("FREE"), null).accepts(movieId)).isTrue();
+        assertThat(updated.listed()).isEqualTo(attributes.listed());
+    }
+
+    @Test
+    void withMediaSharesTheBitsetsItDoesNotChange() {
+        CatalogAttributes attributes = attributes();
+        int movieId = store.idAt(3);
+
+        CatalogAttributes updated = attributes.withMedia(movieId + 1000, movieId, "PREMIUM", "Movie", true);
+
+        assertThat(updated.byMediaType.get("Movie")).isSameAs(attributes.byMediaType.get("Movie"));
+        assertThat(updated.byAccessLevel.get("VIP")).isSameAs(attributes.byAccessLevel.get("VIP"));
+        assertThat(updated.byAccessLevel.get("FREE")).isNotSameAs(attributes.byAccessLevel.get("FREE"));
+        assertThat(updated.accessLevels()).contains("PREMIUM");
+    }
+
+    @Test
+    void withMediaRecordsNewTitlesInAndOutsideTheStore() {
+        CatalogAttributes attributes = attributes();
+
+        CatalogAttributes updated = attributes
+                .withMedia(5000, 4000, "FREE", "Movie", true)
+                .withMedia(5001, MovieLensLinks.NO_ID, "PREMIUM", "Movie", false);
+
+        assertThat(attributes.lists(4000)).isFalse();
+        assertThat(updated.lists(4000)).isTrue();
+        assertThat(updated.listed()).isEqualTo(attributes.listed() + 1);
+        assertThat(updated.filter(Set.of("FREE"), null).accepts(4000)).isTrue();
+        assertThat(updated.mediaAttributes(5001)).containsExactly("PREMIUM", "Movie");
+        assertThat(updated.filter(Set.of("PREMIUM"), null).acceptsMedia(5001)).isTrue();
+        assertThat(attributes.mediaAttributes(5001)).isNull();
+    }
+}
@@ -0,0 +1,155 @@
+package com.group8.Backend.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CoFavoriteIndexTest {
+
+    @Test
+    void addCountsBothDirectionsAndRemoveUndoesIt() {
+        CoFavoriteIndex index = new CoFavoriteIndex(10);
+        index.add(2, new int[0]);
+        index.add(3, new int[] { 2 });
+
+        index.add(1, new int[] { 2, 3, 1 });
+
+        assertThat(counts(index, 1)).containsOnly(Map.entry(2, 1), Map.entry(3, 1));
+        assertThat(counts(index, 2)).containsOnly(Map.entry(1, 1), Map.entry(3, 1));
+        assertThat(counts(index, 3)).containsOnly(Map.entry(1, 1), Map.entry(2, 1));
+        assertThat(index.neighbours(2, 10, null, null)).containsExactlyInAnyOrder(1, 3);
+
+        index.remove(1, new int[] { 2, 3 });
+
+        assertThat(counts(index, 1)).isEmpty();
+        assertThat(counts(index, 2)).containsOnly(Map.entry(3, 1));
+        assertThat(counts(index, 3)).containsOnly(Map.entry(2, 1));
+        assertThat(index.items.get(1).favorites).isZero();
+        assertThat(index.neighbours(1, 10, null, null)).isEmpty();
+        assertThat(index.neighbours(2, 10, null, null)).containsExactly(3);
+    }
+
+    @Test
+    void aFullListIsPrunedToTheStrongestPairs() {
+        int maxNeighbours = 4;
+        CoFavoriteIndex index = new CoFavoriteIndex(maxNeighbours);
+        for (int other = 1; other <= 2 * maxNeighbours; other++) {
+            // Titles 1-4 are favorited with 0 three times, 5-8 once
+            int repeats = other <= maxNeighbours ? 3 : 1;
+            for (int i = 0; i < repeats; i++) {
+                index.add(other, new int[] { 0 });
+            }
+        }
+        CoFavoriteIndex.Item item = index.items.get(0);
+        assertThat(item.size).isEqualTo(2 * maxNeighbours);
+
+        index.add(9, new int[] { 0 });
+
+        assertThat(counts(index, 0)).containsOnly(
+                Map.entry(1, 3), Map.entry(2, 3), Map.entry(3, 3), Map.entry(4, 3), Map.entry(9, 1));
+        assertThat(item.ids.length).isLessThanOrEqualTo(2 * maxNeighbours);
+    }
+
+    @Test
+    void neighboursAreRankedByCosineNotRawCount() {
+        CoFavoriteIndex.Builder builder = CoFavoriteIndex.builder(10, 100);
+        int user = 0;
+        // 3 users favorite 1 with niche title 2, 4 more favorite 1 with popular title 3
+        for (int i = 0; i < 3; i++, user++) {
+            builder.accept(user, 1);
+            builder.accept(user, 2);
+        }
+        for (int i = 0; i < 4; i++, user++) {
+            builder.accept(user, 1);
+            builder.accept(user, 3);
+        }
+        for (int i = 0; i < 16; i++, user++) {
+            builder.accept(user, 3);
+        }
+        CoFavoriteIndex index = builder.build();
+        float[] scores = new float[2];
+
+        int[] neighbours = index.neighbours(1, 2, null, scores);
+
+        assertThat(neighbours).containsExactly(2, 3);
+        assertThat(scores[0]).isCloseTo((float) (3 / Math.sqrt(7 * 3)), within(1e-6f));
+        assertThat(scores[1]).isCloseTo((float) (4 / Math.sqrt(7 * 20)), within(1e-6f));
+        assertThat(index.neighbours(1, 2, id -> id != 2, null)).containsExactly(3);
+        assertThat(builder.users()).isEqualTo(user);
+    }
+
+    @Test
+    void builderMatchesABruteForceCount() {
+        int titles = 60;
+        int maxUserFavorites = 8;
+        Random random = new Random(7);
+        int[] favorites = new int[titles];
+        int[][] pairs = new int[titles][titles];
+        // Titles too many to prune, so every pair is kept
+        CoFavoriteIndex.Builder builder = CoFavoriteIndex.builder(titles, maxUserFavorites);
+        for (int user = 0; user < 300; user++) {
+            Set<Integer> chosen = new LinkedHashSet<>();
+            int size = random.nextInt(13);
+            while (chosen.size() < size) {
+                chosen.add(random.nextInt(titles));
+            }
+            int[] kept = chosen.stream().mapToInt(Integer::intValue).limit(maxUserFavorites).toArray();
+            for (int mediaId : chosen) {
+                builder.accept(user, mediaId);
+            }
+            for (int a : kept) {
+                favorites[a]++;
+                for (int b : kept) {
+                    if (a != b) {
+                        pairs[a][b]++;
+                    }
+                }
+            }
+        }
+
+        CoFavoriteIndex index = builder.build();
+
+        for (int a = 0; a < titles; a++) {
+            if (favorites[a] == 0) {
+                assertThat(index.items.get(a)).isNull();
+                continue;
+            }
+            assertThat(index.items.get(a).favorites).isEqualTo(favorites[a]);
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (int b = 0; b < titles; b++) {
+                if (pairs[a][b] > 0) {
+                    expected.put(b, pairs[a][b]);
+                }
+            }
+            assertThat(counts(index, a)).isEqualTo(expected);
+
+            float[] scores = new float[titles];
+            int[] neighbours = index.neighbours(a, titles, null, scores);
+            assertThat(neighbours).hasSize(expected.size());
+            for (int i = 0; i < neighbours.length; i++) {
+                int b = neighbours[i];
+                assertThat(scores[i]).isCloseTo(
+                        (float) (pairs[a][b] / Math.sqrt((double) favorites[a] * favorites[b])), within(1e-6f));
+                if (i > 0) {
+                    assertThat(scores[i]).isLessThanOrEqualTo(scores[i - 1]);
+                }
+            }
+        }
+    }
+
+    private static Map<Integer, Integer> counts(CoFavoriteIndex index, int mediaId) {
+        CoFavoriteIndex.Item item = index.items.get(mediaId);
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < item.size; i++) {
+            counts.put(item.ids[i], item.counts[i]);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,72 @@
+package com.group8.Backend.recommendation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class EmbeddingStoreTest {
+
+    @Test
+    void missingListsIdsWithoutAVectorInTheOrderGiven() {
+        EmbeddingStore store = EmbeddingStore.from(Map.of(2, new float[] { 1, 0 }, 5, new float[] { 0, 1 }));
+
+        assertThat(store.missing(new int[] { 9, 2, 3, 5 })).containsExactly(9, 3);
+    }
+
+    @Test
+    void withVectorsMergesByIdAndKeepsStoredVectors() {
+        Map<Integer, float[]> base = TestEmbeddings.clustered(200, 8, 4, 3);
+        base.remove(50);
+        base.remove(200);
+        EmbeddingStore store = EmbeddingStore.from(base);
+        Random random = new Random(1);
+        Map<Integer, float[]> added = new HashMap<>();
+        added.put(50, TestEmbeddings.gaussian(random, 8, 2f));
+        added.put(200, TestEmbeddings.gaussian(random, 8, 2f));
+        added.put(1, TestEmbeddings.gaussian(random, 8, 2f));
+        added.put(300, new float[3]);
+
+        EmbeddingStore merged = store.withVectors(added);
+
+        assertThat(merged.size()).isEqualTo(200);
+        assertThat(merged.missing(new int[] { 1, 50, 200, 300 })).containsExactly(300);
+        for (int row = 1; row < merged.size(); row++) {
+            assertThat(merged.idAt(row)).isGreaterThan(merged.idAt(row - 1));
+        }
+        assertThat(merged.vector(1)).containsExactly(store.vector(1));
+        float[] expected = VectorMath.normalizedCopy(added.get(50));
+        float[] actual = merged.vector(50);
+        for (int i = 0; i < expected.length; i++) {
+            assertThat(actual[i]).isCloseTo(expected[i], within(1e-6f));
+        }
+    }
+
+    @Test
+    void withVectorsReturnsTheSameStoreWhenNothingIsNew() {
+        EmbeddingStore store = EmbeddingStore.from(Map.of(2, new float[] { 1, 0 }));
+
+        assertThat(store.withVectors(Map.of(2, new float[] { 0, 1 }))).isSameAs(store);
+    }
+
+    @Test
+    void withVectorsOnAMappedSnapshotCopiesItsRows(@TempDir Path directory) throws Exception {
+        Path snapshot = directory.resolve("model.pt.embeddings");
+        byte[] checksum = new byte[EmbeddingSnapshot.CHECKSUM_BYTES];
+        EmbeddingSnapshot.write(snapshot, checksum, TestEmbeddings.store(100, 8, 5));
+        EmbeddingStore mapped = EmbeddingSnapshot.load(snapshot, checksum);
+
+        EmbeddingStore merged = mapped.withVectors(Map.of(1000, new float[] { 1, 0, 0, 0, 0, 0, 0, 0 }));
+
+        assertThat(mapped.isOffHeap()).isTrue();
+        assertThat(merged.isOffHeap()).isFalse();
+        assertThat(merged.size()).isEqualTo(101);
+        assertThat(merged.vector(37)).containsExactly(mapped.vector(37));
+    }
+}
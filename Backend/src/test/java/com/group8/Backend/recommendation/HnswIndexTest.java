@@ -0,0 +1,142 @@
+package com.group8.Backend.recommendation;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+    static final int K = 20;
+
+    static EmbeddingStore store;
+    static HnswIndex index;
+
+    @BeforeAll
+    static void build() {
+        store = TestEmbeddings.store(3000, 32, 7);
+        index = HnswIndex.build(store, 16, 200, 100);
+    }
+
+    @Test
+    void recallAgainstExactScanOnStoreRows() {
+        double recall = IndexRecall.measure(store, index, 300, K, 42);
+
+        assertThat(recall).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void recallAgainstExactScanOnUnseenQueries() {
+        Random random = new Random(11);
+        int found = 0;
+        int expected = 0;
+        for (int i = 0; i < 200; i++) {
+            float[] query = TestEmbeddings.normalized(random, store.dimension());
+            int[] exact = store.topK(query, K, MovieLensLinks.NO_ID);
+            int[] approximate = index.search(query, K, MovieLensLinks.NO_ID);
+            found += (int) Arrays.stream(approximate).filter(id -> contains(exact, id)).count();
+            expected += exact.length;
+        }
+
+        assertThat((double) found / expected).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void excludeIdIsLeftOut() {
+        for (int row = 0; row < store.size(); row += 97) {
+            int movieId = store.idAt(row);
+            int[] similar = index.search(store.vectorAt(row), K, movieId);
+
+            assertThat(similar).hasSize(K).doesNotContain(movieId);
+        }
+    }
+
+    @Test
+    void withoutExcludeIdAStoreRowFindsItselfFirst() {
+        int movieId = store.idAt(123);
+
+        int[] similar = index.search(store.vectorAt(123), K, MovieLensLinks.NO_ID);
+
+        assertThat(similar[0]).isEqualTo(movieId);
+    }
+
+    @Test
+    void selectiveFilterFallsBackToAnExactScanOfAcceptedRows() {
+        CatalogFilter filter = filterAccepting(row -> row % 25 == 0);
+        assertThat(filter.cardinality()).isLessThan((int) (store.size() * HnswIndex.FILTERED_SCAN_FRACTION));
+
+        Random random = new Random(3);
+        for (int i = 0; i < 20; i++) {
+            int row = random.nextInt(store.size());
+            float[] query = store.vectorAt(row);
+            int[] filtered = index.search(query, K, store.idAt(row), filter);
+
+            assertThat(filtered).containsExactly(store.topK(query, K, store.idAt(row), filter));
+            assertThat(Arrays.stream(filtered).allMatch(filter::accepts)).isTrue();
+        }
+    }
+
+    @Test
+    void broadFilterSearchesTheGraphAndReturnsOnlyAcceptedRows() {
+        CatalogFilter filter = filterAccepting(row -> row % 2 == 0);
+        assertThat(filter.cardinality()).isGreaterThanOrEqualTo((int) (store.size() * HnswIndex.FILTERED_SCAN_FRACTION));
+
+        for (int row = 1; row < store.size(); row += 151) {
+            int[] filtered = index.search(store.vectorAt(row), K, store.idAt(row), filter);
+
+            assertThat(filtered).hasSize(K);
+            assertThat(Arrays.stream(filtered).allMatch(filter::accepts)).isTrue();
+        }
+    }
+
+    @Test
+    void concurrentSearchesMatchSequentialOnes() throws Exception {
+        int queries = 400;
+        int[][] expected = new int[queries][];
+        for (int q = 0; q < queries; q++) {
+            expected[q] = index.search(store.vectorAt(q), K, store.idAt(q));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(HnswIndex.VISITED_POOL_SIZE + 4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>(queries);
+            for (int q = 0; q < queries; q++) {
+                int row = q;
+                results.add(pool.submit(() -> index.search(store.vectorAt(row), K, store.idAt(row))));
+            }
+            for (int q = 0; q < queries; q++) {
+                assertThat(results.get(q).get()).containsExactly(expected[q]);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(index.visited.size()).isLessThanOrEqualTo(HnswIndex.VISITED_POOL_SIZE);
+    }
+
+    // Rows the predicate accepts are VIP, the rest FREE; filters on VIP
+    private static CatalogFilter filterAccepting(IntPredicate rows) {
+        CatalogAttributes.Builder builder = CatalogAttributes.builder(store);
+        for (int row = 0; row < store.size(); row++) {
+            builder.add(store.idAt(row), rows.test(row) ? "VIP" : "FREE", "MOVIE", false);
+        }
+        return builder.build().filter(Set.of("VIP"), null);
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int candidate : ids) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,189 @@
+package com.group8.Backend.recommendation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IncrementalIndexTest {
+    static final int K = 10;
+    static final int DIMENSION = 16;
+
+    final EmbeddingStore store = TestEmbeddings.store(1000, DIMENSION, 31);
+
+    @Test
+    void addRejectsIndexedIdsAndWrongDimensions() {
+        IncrementalIndex index = new IncrementalIndex(store, store);
+        float[] vector = TestEmbeddings.normalized(new Random(1), DIMENSION);
+
+        assertThat(index.add(store.idAt(0), vector)).isFalse();
+        assertThat(index.add(5000, vector)).isTrue();
+        assertThat(index.add(5000, vector)).isFalse();
+        assertThatThrownBy(() -> index.add(5001, new float[DIMENSION - 1]))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(index.added()).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(store.size() + 1);
+    }
+
+    @Test
+    void addedVectorsAreRankedWithStoredOnesByExactScore() {
+        IncrementalIndex index = new IncrementalIndex(store, HnswIndex.build(store, 16, 200, 100));
+        Random random = new Random(2);
+        // A near-duplicate of a stored row must come back right behind it
+        float[] nearby = store.vectorAt(40).clone();
+        nearby[0] += 0.01f;
+        VectorMath.normalize(nearby, 0, DIMENSION);
+        index.add(5000, nearby);
+        index.add(5001, TestEmbeddings.normalized(random, DIMENSION));
+
+        int[] similar = index.search(store.vectorAt(40), K, MovieLensLinks.NO_ID);
+
+        assertThat(similar[0]).isEqualTo(store.idAt(40));
+        assertThat(similar[1]).isEqualTo(5000);
+        for (int i = 1; i < similar.length; i++) {
+            assertThat(index.similarity(store.idAt(40), similar[i - 1]))
+                    .isGreaterThanOrEqualTo(index.similarity(store.idAt(40), similar[i]));
+        }
+        assertThat(index.search(nearby, K, 5000)).doesNotContain(5000);
+        assertThat(index.vector(5000)).containsExactly(nearby);
+        assertThat(index.contains(5001)).isTrue();
+    }
+
+    @Test
+    void addPublishesANewSegmentAndLeavesTheOldOneIntact() {
+        IncrementalIndex index = new IncrementalIndex(store, store);
+        Random random = new Random(3);
+        index.add(5000, TestEmbeddings.normalized(random, DIMENSION));
+        IncrementalIndex.Added before = index.added;
+        int[] idsBefore = before.ids.clone();
+        float[] vectorsBefore = before.vectors.clone();
+
+        index.add(5001, TestEmbeddings.normalized(random, DIMENSION));
+
+        assertThat(index.added).isNotSameAs(before);
+        assertThat(before.ids).containsExactly(idsBefore);
+        assertThat(before.vectors).containsExactly(vectorsBefore);
+        assertThat(index.added.ids).containsExactly(5000, 5001);
+    }
+
+    @Test
+    void addedIdsHonourTheFilter() {
+        IncrementalIndex index = new IncrementalIndex(store, store);
+        float[] query = store.vectorAt(0);
+        index.add(5000, query.clone());
+        index.add(5001, query.clone());
+        CatalogAttributes.Builder builder = CatalogAttributes.builder(store);
+        for (int row = 0; row < store.size(); row++) {
+            builder.add(store.idAt(row), "FREE", "MOVIE", true);
+        }
+        builder.add(5000, "FREE", "MOVIE", true);
+        builder.add(5001, "VIP", "MOVIE", true);
+        CatalogFilter free = builder.build().filter(Set.of("FREE"), null);
+
+        int[] similar = index.search(query, K, store.idAt(0), free);
+
+        assertThat(similar[0]).isEqualTo(5000);
+        assertThat(similar).doesNotContain(5001);
+    }
+
+    @Test
+    void searchesRunningAlongsideAppendsStayConsistent() throws Exception {
+        IncrementalIndex index = new IncrementalIndex(store, HnswIndex.build(store, 16, 100, 64));
+        Random random = new Random(4);
+        int additions = 300;
+        float[][] vectors = new float[additions][];
+        for (int i = 0; i < additions; i++) {
+            vectors[i] = TestEmbeddings.normalized(random, DIMENSION);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> searches = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                searches.add(readers.submit(() -> {
+                    Random queries = new Random(seed);
+                    int count = 0;
+                    do {
+                        float[] query = TestEmbeddings.normalized(queries, DIMENSION);
+                        int[] similar = index.search(query, K, MovieLensLinks.NO_ID);
+                        Set<Integer> distinct = new HashSet<>();
+                        float previous = Float.POSITIVE_INFINITY;
+                        for (int id : similar) {
+                            float[] vector = index.vector(id);
+                            assertThat(vector).isNotNull();
+                            float score = VectorMath.dot(query, vector);
+                            assertThat(score).isLessThanOrEqualTo(previous + 1e-6f);
+                            assertThat(distinct.add(id)).isTrue();
+                            previous = score;
+                        }
+                        assertThat(similar).hasSize(K);
+                        count++;
+                    } while (!done.get());
+                    return count;
+                }));
+            }
+            for (int i = 0; i < additions; i++) {
+                assertThat(index.add(10_000 + i, vectors[i])).isTrue();
+            }
+            done.set(true);
+            for (Future<Integer> search : searches) {
+                assertThat(search.get()).isPositive();
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+
+        assertThat(index.added()).isEqualTo(additions);
+        for (int i = 0; i < additions; i++) {
+            assertThat(index.search(vectors[i], 1, MovieLensLinks.NO_ID)).containsExactly(10_000 + i);
+        }
+    }
+
+    @Test
+    void anAddedTitleSurvivesAReload(@TempDir Path directory) throws Exception {
+        Path snapshot = directory.resolve("model.pt.embeddings");
+        byte[] checksum = new byte[EmbeddingSnapshot.CHECKSUM_BYTES];
+        EmbeddingSnapshot.write(snapshot, checksum, store);
+        IncrementalIndex index = new IncrementalIndex(store, store);
+        float[] vector = TestEmbeddings.normalized(new Random(5), DIMENSION);
+        index.add(5000, vector);
+        int[] linkIds = new int[store.size() + 1];
+        for (int row = 0; row < store.size(); row++) {
+            linkIds[row] = store.idAt(row);
+        }
+        linkIds[store.size()] = 5000;
+
+        // What a reload does: map the snapshot, embed the linked ids it lacks, rewrite it
+        EmbeddingStore loaded = EmbeddingSnapshot.load(snapshot, checksum);
+        int[] uncovered = loaded.missing(linkIds);
+        assertThat(uncovered).containsExactly(5000);
+        Map<Integer, float[]> embedded = new HashMap<>();
+        for (int id : uncovered) {
+            embedded.put(id, index.vector(id));
+        }
+        EmbeddingSnapshot.write(snapshot, checksum, loaded.withVectors(embedded));
+        EmbeddingStore reloaded = EmbeddingSnapshot.load(snapshot, checksum);
+        IncrementalIndex rebuilt = new IncrementalIndex(reloaded, HnswIndex.build(reloaded, 16, 100, 64));
+
+        assertThat(rebuilt.added()).isZero();
+        assertThat(rebuilt.contains(5000)).isTrue();
+        assertThat(rebuilt.search(vector, 1, MovieLensLinks.NO_ID)).containsExactly(5000);
+        assertThat(EmbeddingSnapshot.load(snapshot, checksum).missing(linkIds)).isEmpty();
+    }
+}
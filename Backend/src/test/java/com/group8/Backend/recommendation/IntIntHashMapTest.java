@@ -0,0 +1,106 @@
+package com.group8.Backend.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntIntHashMapTest {
+
+    @Test
+    void keysWithTheSameHomeSlotProbeToTheirOwnValues() {
+        IntIntHashMap map = new IntIntHashMap(64);
+        int mask = map.mask;
+        int home = IntIntHashMap.mix(1) & mask;
+        int[] colliding = new int[8];
+        int found = 0;
+        for (int key = 1; found < colliding.length; key++) {
+            if ((IntIntHashMap.mix(key) & mask) == home) {
+                colliding[found++] = key;
+            }
+        }
+
+        for (int i = 0; i < colliding.length; i++) {
+            map.put(colliding[i], i * 10);
+        }
+
+        assertThat(map.mask).isEqualTo(mask);
+        assertThat(map.size()).isEqualTo(colliding.length);
+        for (int i = 0; i < colliding.length; i++) {
+            assertThat(map.get(colliding[i], -1)).isEqualTo(i * 10);
+        }
+        // A key hashing to the same slot but never stored walks the whole run and misses
+        int absent = colliding[colliding.length - 1] + 1;
+        while ((IntIntHashMap.mix(absent) & mask) != home) {
+            absent++;
+        }
+        assertThat(map.containsKey(absent)).isFalse();
+        assertThat(map.get(absent, -1)).isEqualTo(-1);
+    }
+
+    @Test
+    void growsPastItsExpectedSizeWithoutLosingEntries() {
+        IntIntHashMap map = new IntIntHashMap(0);
+        int initialCapacity = map.keys.length;
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(21);
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt();
+            int value = random.nextInt();
+            map.put(key, value);
+            expected.put(key, value);
+        }
+
+        assertThat(map.keys.length).isGreaterThan(initialCapacity);
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(map.size()).isLessThanOrEqualTo((int) (map.keys.length * IntIntHashMap.LOAD_FACTOR));
+        expected.forEach((key, value) -> assertThat(map.get(key, value + 1)).isEqualTo(value));
+    }
+
+    @Test
+    void putOverwritesAndPutIfAbsentDoesNot() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        map.put(7, 1);
+        map.put(7, 2);
+        map.putIfAbsent(7, 3);
+        map.putIfAbsent(8, 4);
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(7, -1)).isEqualTo(2);
+        assertThat(map.get(8, -1)).isEqualTo(4);
+    }
+
+    @Test
+    void freeKeyIsStoredOutOfLine() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        assertThat(map.containsKey(IntIntHashMap.FREE_KEY)).isFalse();
+
+        map.put(IntIntHashMap.FREE_KEY, 5);
+        map.put(IntIntHashMap.FREE_KEY, 6);
+        for (int key = 0; key < 100; key++) {
+            map.put(key, key);
+        }
+
+        assertThat(map.size()).isEqualTo(101);
+        assertThat(map.get(IntIntHashMap.FREE_KEY, -1)).isEqualTo(6);
+        assertThat(map.get(99, -1)).isEqualTo(99);
+    }
+
+    @Test
+    void copyIsIndependentOfTheOriginal() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        map.put(1, 1);
+        IntIntHashMap copy = map.copy();
+
+        copy.put(1, 2);
+        copy.put(2, 2);
+
+        assertThat(map.get(1, -1)).isEqualTo(1);
+        assertThat(map.containsKey(2)).isFalse();
+        assertThat(copy.get(1, -1)).isEqualTo(2);
+        assertThat(copy.size()).isEqualTo(2);
+    }
+}
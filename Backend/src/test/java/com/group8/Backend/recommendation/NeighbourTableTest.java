@@ -0,0 +1,120 @@
+package com.group8.Backend.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NeighbourTableTest {
+    static final int K = 10;
+
+    final EmbeddingStore store = TestEmbeddings.store(1000, 16, 23);
+
+    @Test
+    void rowsAreNullUntilFilledThenMatchAnExactSearch() {
+        NeighbourTable table = new NeighbourTable(store, K);
+        assertThat(table.get(store.idAt(0))).isNull();
+        assertThat(table.progress()).isZero();
+
+        fill(table);
+
+        assertThat(table.isComplete()).isTrue();
+        assertThat(table.progress()).isEqualTo(1.0);
+        for (int row = 0; row < store.size(); row += 37) {
+            assertThat(table.get(store.idAt(row))).containsExactly(store.neighbours(store.idAt(row), K));
+        }
+        assertThat(table.get(-1)).isNull();
+    }
+
+    @Test
+    void overrideReplacesAFilledRowAndIsTruncatedToK() {
+        NeighbourTable table = new NeighbourTable(store, K);
+        fill(table);
+        int movieId = store.idAt(5);
+        int[] replacement = new int[K + 5];
+        for (int i = 0; i < replacement.length; i++) {
+            replacement[i] = 9000 + i;
+        }
+
+        table.put(movieId, replacement);
+        replacement[0] = -1;
+
+        assertThat(table.get(movieId)).hasSize(K).startsWith(9000, 9001).endsWith(9000 + K - 1);
+    }
+
+    @Test
+    void overrideGivesAListToAMovieOutsideTheStore() {
+        NeighbourTable table = new NeighbourTable(store, K);
+
+        table.put(123_456, new int[] { 1, 2, 3 });
+
+        assertThat(table.get(123_456)).containsExactly(1, 2, 3);
+        assertThat(table.completed()).isZero();
+    }
+
+    @Test
+    void returnedListsAreCopies() {
+        NeighbourTable table = new NeighbourTable(store, K);
+        fill(table);
+        table.put(123_456, new int[] { 1, 2, 3 });
+
+        table.get(store.idAt(0))[0] = -1;
+        table.get(123_456)[0] = -1;
+
+        assertThat(table.get(store.idAt(0))[0]).isNotEqualTo(-1);
+        assertThat(table.get(123_456)[0]).isEqualTo(1);
+    }
+
+    @Test
+    void readersDuringTheFillSeeEitherNothingOrACompleteRow() throws Exception {
+        NeighbourTable expected = new NeighbourTable(store, K);
+        fill(expected);
+        NeighbourTable table = new NeighbourTable(store, K);
+        AtomicBoolean done = new AtomicBoolean();
+
+        ExecutorService readers = Executors.newFixedThreadPool(3);
+        try {
+            Future<Integer> seen = readers.submit(() -> {
+                int complete = 0;
+                // One pass after the fill too, so a late start still reads something
+                do {
+                    for (int row = 0; row < store.size(); row++) {
+                        int[] list = table.get(store.idAt(row));
+                        if (list != null) {
+                            assertThat(list).containsExactly(expected.get(store.idAt(row)));
+                            complete++;
+                        }
+                    }
+                } while (!done.get());
+                return complete;
+            });
+            ForkJoinPool pool = new ForkJoinPool(2);
+            try {
+                table.fill(pool, store);
+            } finally {
+                done.set(true);
+                pool.shutdown();
+            }
+
+            assertThat(seen.get()).isPositive();
+            assertThat(table.isComplete()).isTrue();
+            assertThat(table.elapsedMillis()).isGreaterThanOrEqualTo(0);
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    private void fill(NeighbourTable table) {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            table.fill(pool, store);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
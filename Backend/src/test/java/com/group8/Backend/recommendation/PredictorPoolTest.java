@@ -0,0 +1,126 @@
+package com.group8.Backend.recommendation;
+
+import ai.djl.inference.Predictor;
+import ai.djl.ndarray.NDList;
+import ai.djl.repository.zoo.ZooModel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PredictorPoolTest {
+    final Set<Predictor<NDList, NDList>> closed = ConcurrentHashMap.newKeySet();
+    final List<Predictor<NDList, NDList>> created = new ArrayList<>();
+
+    @Test
+    void closeClosesIdlePredictorsAndStopsLending() throws Exception {
+        PredictorPool pool = new PredictorPool(model(), 3, Duration.ofSeconds(1));
+
+        pool.close();
+
+        assertThat(closed).containsExactlyInAnyOrderElementsOf(created);
+        assertThatThrownBy(pool::borrow).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void checkedOutPredictorIsClosedWhenReturnedNotBefore() throws Exception {
+        PredictorPool pool = new PredictorPool(model(), 2, Duration.ofSeconds(1));
+        PredictorPool.Lease lease = pool.borrow();
+        Predictor<NDList, NDList> busy = lease.predictor();
+
+        assertThat(pool.close(Duration.ofMillis(50))).isFalse();
+        verify(busy, never()).close();
+        assertThat(pool.available()).isZero();
+
+        lease.close();
+        verify(busy, times(1)).close();
+        assertThat(pool.close(Duration.ZERO)).isTrue();
+    }
+
+    @Test
+    void closeWithTimeoutBlocksUntilTheLastLeaseIsReturned() throws Exception {
+        PredictorPool pool = new PredictorPool(model(), 2, Duration.ofSeconds(1));
+        PredictorPool.Lease lease = pool.borrow();
+        ExecutorService returner = Executors.newSingleThreadExecutor();
+        try {
+            returner.submit(() -> {
+                Thread.sleep(100);
+                lease.close();
+                return null;
+            });
+
+            long start = System.nanoTime();
+            assertThat(pool.close(Duration.ofSeconds(5))).isTrue();
+            assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+            assertThat(closed).containsExactlyInAnyOrderElementsOf(created);
+        } finally {
+            returner.shutdownNow();
+        }
+    }
+
+    @Test
+    void borrowersRacingCloseNeverGetAClosedPredictor() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            closed.clear();
+            created.clear();
+            PredictorPool pool = new PredictorPool(model(), 4, Duration.ofMillis(20));
+            AtomicInteger usedAfterClose = new AtomicInteger();
+            CountDownLatch started = new CountDownLatch(8);
+            ExecutorService borrowers = Executors.newFixedThreadPool(8);
+            for (int t = 0; t < 8; t++) {
+                borrowers.submit(() -> {
+                    started.countDown();
+                    while (true) {
+                        try (PredictorPool.Lease lease = pool.borrow()) {
+                            if (closed.contains(lease.predictor())) {
+                                usedAfterClose.incrementAndGet();
+                            }
+                            Thread.onSpinWait();
+                        } catch (IllegalStateException | TimeoutException e) {
+                            return null;
+                        }
+                    }
+                });
+            }
+            started.await();
+
+            boolean drained = pool.close(Duration.ofSeconds(5));
+            borrowers.shutdown();
+            assertThat(borrowers.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(drained).isTrue();
+            assertThat(usedAfterClose).hasValue(0);
+            assertThat(closed).containsExactlyInAnyOrderElementsOf(created);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ZooModel<NDList, NDList> model() {
+        ZooModel<NDList, NDList> model = mock(ZooModel.class);
+        when(model.newPredictor()).thenAnswer(invocation -> {
+            Predictor<NDList, NDList> predictor = mock(Predictor.class);
+            doAnswer(close -> closed.add(predictor)).when(predictor).close();
+            created.add(predictor);
+            return predictor;
+        });
+        return model;
+    }
+}
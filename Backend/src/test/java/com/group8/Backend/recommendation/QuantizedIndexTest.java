@@ -0,0 +1,70 @@
+package com.group8.Backend.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantizedIndexTest {
+
+    @Test
+    void int8RoundTripErrorIsWithinHalfAStep() {
+        Random random = new Random(5);
+        for (int i = 0; i < 500; i++) {
+            float[] vector = TestEmbeddings.normalized(random, 64);
+            byte[] codes = new byte[vector.length];
+
+            float scale = QuantizedIndex.quantize(vector, codes, 0);
+
+            for (int d = 0; d < vector.length; d++) {
+                assertThat(codes[d] * scale).isCloseTo(vector[d], within(scale / 2 + 1e-7f));
+            }
+        }
+    }
+
+    @Test
+    void int8LargestComponentMapsToFullScale() {
+        float[] vector = { 0.6f, -0.8f, 0f };
+        byte[] codes = new byte[3];
+
+        float scale = QuantizedIndex.quantize(vector, codes, 0);
+
+        assertThat(codes).containsExactly(95, -127, 0);
+        assertThat(scale).isCloseTo(0.8f / 127, within(1e-9f));
+    }
+
+    @Test
+    void int8ZeroVectorQuantizesToZeroScale() {
+        byte[] codes = new byte[4];
+
+        assertThat(QuantizedIndex.quantize(new float[4], codes, 0)).isZero();
+        assertThat(codes).containsOnly(0);
+    }
+
+    @Test
+    void float16RoundTripKeepsElevenSignificantBits() {
+        Random random = new Random(9);
+        for (int i = 0; i < 10_000; i++) {
+            float value = (float) random.nextGaussian();
+
+            float decoded = QuantizedIndex.halfToFloat(QuantizedIndex.floatToHalf(value));
+
+            assertThat(decoded).isCloseTo(value, within(Math.abs(value) / 2048 + 6e-8f));
+        }
+        assertThat(QuantizedIndex.halfToFloat(QuantizedIndex.floatToHalf(70000f))).isInfinite();
+    }
+
+    @Test
+    void int8SearchWithRerankMatchesExactTopResults() {
+        EmbeddingStore store = TestEmbeddings.store(2000, 32, 17);
+        QuantizedIndex index = QuantizedIndex.build(store, QuantizedIndex.Encoding.INT8, 4);
+
+        double recall = IndexRecall.measure(store, index, 200, 20, 1);
+
+        assertThat(recall).isGreaterThanOrEqualTo(0.97);
+        int[] similar = index.search(store.vectorAt(0), 20, store.idAt(0));
+        assertThat(similar).hasSize(20).doesNotContain(store.idAt(0));
+    }
+}
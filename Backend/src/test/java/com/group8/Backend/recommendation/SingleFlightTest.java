@@ -0,0 +1,107 @@
+package com.group8.Backend.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+    static final int CALLERS = 8;
+
+    final SingleFlight<Integer, String> flight = new SingleFlight<>();
+
+    @Test
+    void concurrentCallersForOneKeyShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            Future<String> first = executor.submit(() -> flight.execute(1, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "loaded";
+            }));
+            while (flight.inFlight() == 0) {
+                Thread.sleep(1);
+            }
+            List<Future<String>> waiting = new ArrayList<>();
+            for (int i = 1; i < CALLERS; i++) {
+                waiting.add(executor.submit(() -> flight.execute(1, () -> "loaded again")));
+            }
+            while (flight.coalesced() < CALLERS - 1) {
+                Thread.sleep(1);
+            }
+
+            release.countDown();
+
+            assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("loaded");
+            for (Future<String> caller : waiting) {
+                assertThat(caller.get(10, TimeUnit.SECONDS)).isEqualTo("loaded");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads).hasValue(1);
+        assertThat(flight.coalesced()).isEqualTo(CALLERS - 1);
+        assertThat(flight.inFlight()).isZero();
+    }
+
+    @Test
+    void nothingIsKeptOnceALoadFinishes() {
+        assertThat(flight.execute(1, () -> "first")).isEqualTo("first");
+        assertThat(flight.execute(1, () -> "second")).isEqualTo("second");
+        assertThat(flight.execute(2, () -> "other")).isEqualTo("other");
+
+        assertThat(flight.coalesced()).isZero();
+        assertThat(flight.inFlight()).isZero();
+    }
+
+    @Test
+    void aFailedLoadIsRethrownToEveryWaiterAndNotRemembered() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> flight.execute(1, () -> {
+                await(release);
+                throw new IllegalStateException("model closed");
+            }));
+            while (flight.inFlight() == 0) {
+                Thread.sleep(1);
+            }
+            Future<String> waiter = executor.submit(() -> flight.execute(1, () -> "loaded"));
+            while (flight.coalesced() == 0) {
+                Thread.sleep(1);
+            }
+
+            release.countDown();
+
+            for (Future<String> caller : List.of(first, waiter)) {
+                assertThatThrownBy(() -> caller.get(10, TimeUnit.SECONDS))
+                        .hasCauseInstanceOf(IllegalStateException.class)
+                        .hasRootCauseMessage("model closed");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(flight.execute(1, () -> "retried")).isEqualTo("retried");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.group8.Backend.recommendation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/** Seeded synthetic embeddings shared by the index tests. */
+final class TestEmbeddings {
+
+    private TestEmbeddings() {
+    }
+
+    /**
+     * {@code count} vectors around {@code clusters} random centres, with MovieLens ids 1..count,
+     * so neighbourhoods look like a real catalog's rather than uniform noise.
+     */
+    static Map<Integer, float[]> clustered(int count, int dimension, int clusters, long seed) {
+        Random random = new Random(seed);
+        float[][] centres = new float[clusters][];
+        for (int c = 0; c < clusters; c++) {
+            centres[c] = gaussian(random, dimension, 1f);
+        }
+        Map<Integer, float[]> embeddings = new HashMap<>(count * 2);
+        for (int id = 1; id <= count; id++) {
+            float[] centre = centres[random.nextInt(clusters)];
+            float[] vector = gaussian(random, dimension, 0.3f);
+            for (int i = 0; i < dimension; i++) {
+                vector[i] += centre[i];
+            }
+            embeddings.put(id, vector);
+        }
+        return embeddings;
+    }
+
+    static EmbeddingStore store(int count, int dimension, long seed) {
+        return EmbeddingStore.from(clustered(count, dimension, Math.max(1, count / 50), seed));
+    }
+
+    static float[] gaussian(Random random, int dimension, float scale) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+
+    static float[] normalized(Random random, int dimension) {
+        float[] vector = gaussian(random, dimension, 1f);
+        VectorMath.normalize(vector, 0, dimension);
+        return vector;
+    }
+}
@@ -0,0 +1,58 @@
+package com.group8.Backend.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TopKTest {
+
+    @Test
+    void keepsTheHighestScoresInDescendingOrder() {
+        Random random = new Random(13);
+        float[] scores = new float[1000];
+        TopK best = new TopK(25);
+        for (int id = 0; id < scores.length; id++) {
+            scores[id] = random.nextFloat();
+            best.offer(id, scores[id]);
+        }
+        int[] expected = IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer id) -> scores[id]).reversed())
+                .limit(25)
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        float[] drained = new float[25];
+        int[] ids = best.drainDescending(drained);
+
+        assertThat(ids).containsExactly(expected);
+        for (int i = 0; i < ids.length; i++) {
+            assertThat(drained[i]).isEqualTo(scores[ids[i]]);
+        }
+        assertThat(best.size()).isZero();
+    }
+
+    @Test
+    void thresholdIsTheWeakestKeptScoreOnceFull() {
+        TopK best = new TopK(2);
+        assertThat(best.threshold()).isEqualTo(Float.NEGATIVE_INFINITY);
+
+        best.offer(1, 0.5f);
+        best.offer(2, 0.9f);
+        assertThat(best.isFull()).isTrue();
+        assertThat(best.threshold()).isEqualTo(0.5f);
+
+        assertThat(best.offer(3, 0.5f)).isFalse();
+        assertThat(best.offer(4, 0.7f)).isTrue();
+        assertThat(best.drainDescending()).containsExactly(2, 4);
+    }
+
+    @Test
+    void rejectsNonPositiveK() {
+        assertThatThrownBy(() -> new TopK(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,85 @@
+package com.group8.Backend.repository;
+
+import com.group8.Backend.entity.UserRecommendation;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserRecommendationStoreTest {
+    final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    final UserRecommendationStore store = new UserRecommendationStore(jdbcTemplate);
+    final LocalDateTime computedAt = LocalDateTime.of(2026, 1, 1, 3, 0);
+
+    @Test
+    void replaceDropsUsersWhoseFavoritesChangedDuringTheRun() {
+        ArgumentCaptor<Object[]> changedQueryArgs = ArgumentCaptor.forClass(Object[].class);
+        // User 2 toggled a favorite after the run started, and invalidate() already deleted its list
+        when(jdbcTemplate.queryForList(startsWith("SELECT UserID FROM Users WHERE FavoritesChangedAt >= ?"),
+                eq(Integer.class), changedQueryArgs.capture())).thenReturn(List.of(2));
+        List<UserRecommendation> rows = List.of(row(1, 0), row(1, 1), row(2, 0), row(3, 0));
+
+        store.replace(List.of(1, 2, 3), rows, computedAt);
+
+        assertThat(changedQueryArgs.getValue()).containsExactly(Timestamp.valueOf(computedAt), 1, 2, 3);
+        verify(jdbcTemplate).batchUpdate(eq("DELETE FROM user_recommendations WHERE UserID = ?"),
+                eq(List.of(1, 2, 3)), anyInt(), any());
+        assertThat(inserted()).containsExactly(row(1, 0), row(1, 1), row(3, 0));
+    }
+
+    @Test
+    void replaceKeepsEveryRowWhenNoFavoritesChanged() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT UserID FROM Users"), eq(Integer.class), any(Object[].class)))
+                .thenReturn(List.of());
+        List<UserRecommendation> rows = List.of(row(1, 0), row(2, 0));
+
+        store.replace(List.of(1, 2), rows, computedAt);
+
+        assertThat(inserted()).isEqualTo(rows);
+    }
+
+    @Test
+    void anEmptyPageSkipsTheChangeQuery() {
+        store.replace(List.of(), List.of(), computedAt);
+
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(Integer.class), any(Object[].class));
+    }
+
+    @Test
+    void invalidateStampsTheUserAndDeletesTheirList() {
+        store.invalidate(4, computedAt);
+
+        verify(jdbcTemplate).update("UPDATE Users SET FavoritesChangedAt = ? WHERE UserID = ?",
+                Timestamp.valueOf(computedAt), 4);
+        verify(jdbcTemplate).update("DELETE FROM user_recommendations WHERE UserID = ?", 4);
+    }
+
+    @SuppressWarnings("unchecked")
+    Collection<UserRecommendation> inserted() {
+        ArgumentCaptor<Collection<UserRecommendation>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO user_recommendations"), rows.capture(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        return rows.getValue();
+    }
+
+    UserRecommendation row(int userId, int position) {
+        return UserRecommendation.builder().userId(userId).position(position).mediaId(100 * userId + position)
+                .mode("VOTE").accessMask(1).computedAt(computedAt).build();
+    }
+}
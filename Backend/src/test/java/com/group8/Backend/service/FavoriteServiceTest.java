@@ -0,0 +1,63 @@
+package com.group8.Backend.service;
+
+import com.group8.Backend.entity.Media;
+import com.group8.Backend.entity.User;
+import com.group8.Backend.mapper.MediaMapper;
+import com.group8.Backend.repository.FavoriteRepository;
+import com.group8.Backend.repository.MediaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FavoriteServiceTest {
+    final FavoriteRepository favoriteRepository = mock(FavoriteRepository.class);
+    final MediaRepository mediaRepository = mock(MediaRepository.class);
+    final UserService userService = mock(UserService.class);
+    final RecommendationService recommendationService = mock(RecommendationService.class);
+    final FavoriteService favoriteService = new FavoriteService(favoriteRepository, mediaRepository, userService,
+            mock(MediaMapper.class), recommendationService);
+
+    @BeforeEach
+    void signIn() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("viewer", null));
+        when(userService.getUserByUsername("viewer")).thenReturn(User.builder().userID(7).username("viewer").build());
+        when(mediaRepository.findById(3)).thenReturn(Optional.of(Media.builder().mediaId(3).build()));
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void aToggleOnlyReadsTheOtherFavoritesForTheCoFavoriteIndex() {
+        when(recommendationService.tracksCoFavorites()).thenReturn(false);
+
+        assertThat(favoriteService.toggleFavorite(3)).isTrue();
+
+        verify(favoriteRepository, never()).findMediaIdsByUserId(7);
+        verify(recommendationService).onFavoriteChanged(7, 3, true, List.of());
+    }
+
+    @Test
+    void aToggleHandsTheOtherFavoritesToTheCoFavoriteIndex() {
+        when(recommendationService.tracksCoFavorites()).thenReturn(true);
+        when(favoriteRepository.existsByUserIdAndMediaId(7, 3)).thenReturn(true);
+        when(favoriteRepository.findMediaIdsByUserId(7)).thenReturn(List.of(3, 5));
+
+        assertThat(favoriteService.toggleFavorite(3)).isFalse();
+
+        verify(recommendationService).onFavoriteChanged(7, 3, false, List.of(3, 5));
+    }
+}
@@ -0,0 +1,96 @@
+package com.group8.Backend.service;
+
+import com.group8.Backend.dto.response.MediaResponse;
+import com.group8.Backend.entity.Genre;
+import com.group8.Backend.entity.Media;
+import com.group8.Backend.entity.MediaType;
+import com.group8.Backend.mapper.MediaMapperImpl;
+import com.group8.Backend.repository.GenreRepository;
+import com.group8.Backend.repository.MediaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class PopularMediaServiceTest {
+    static final int DRAMA = 4;
+
+    final MediaRepository mediaRepository = mock(MediaRepository.class);
+    final GenreRepository genreRepository = mock(GenreRepository.class);
+    final PopularMediaService popular = new PopularMediaService(mediaRepository, genreRepository,
+            new MediaMapperImpl(), new RecommendationHarness.NoTransactionManager(), new SimpleMeterRegistry());
+    final Pageable top = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "viewCount"));
+
+    @BeforeEach
+    void catalog() {
+        ReflectionTestUtils.setField(popular, "popularSize", 3);
+        popular.init();
+        when(genreRepository.findAll()).thenReturn(List.of(Genre.builder().genreId(DRAMA).genreName("Drama").build()));
+        // Ids below 10 are movies and ids from 10 series; the drama rail mixes both
+        when(mediaRepository.findAllWithFilters(null, null, null, top)).thenReturn(page(1, 10, 2));
+        when(mediaRepository.findAllWithFilters(MediaType.Movie, null, null, top)).thenReturn(page(1, 2, 3));
+        when(mediaRepository.findAllWithFilters(MediaType.Series, null, null, top)).thenReturn(page(10, 11));
+        when(mediaRepository.findAllWithFilters(null, null, DRAMA, top)).thenReturn(page(11, 3, 12));
+    }
+
+    @Test
+    void theRailIsBuiltOnFirstReadAndServedFromMemory() {
+        assertThat(mediaIds(popular.getPopular())).containsExactly(1, 10, 2);
+
+        clearInvocations(mediaRepository, genreRepository);
+        assertThat(mediaIds(popular.getPopular())).containsExactly(1, 10, 2);
+        assertThat(mediaIds(popular.getPopular(MediaType.Series, null))).containsExactly(10, 11);
+
+        verifyNoMoreInteractions(mediaRepository, genreRepository);
+    }
+
+    @Test
+    void railsAreKeptPerTypeAndPerGenre() {
+        assertThat(mediaIds(popular.getPopular(null, null))).containsExactly(1, 10, 2);
+        assertThat(mediaIds(popular.getPopular(MediaType.Movie, null))).containsExactly(1, 2, 3);
+        assertThat(mediaIds(popular.getPopular(null, DRAMA))).containsExactly(11, 3, 12);
+        assertThat(mediaIds(popular.getPopular(MediaType.Series, DRAMA))).containsExactly(11, 12);
+        assertThat(mediaIds(popular.getPopular(MediaType.Movie, DRAMA))).containsExactly(3);
+        assertThat(popular.getPopular(null, 99)).isEmpty();
+    }
+
+    @Test
+    void aFailedRefreshKeepsThePreviousRail() {
+        popular.refresh();
+        when(mediaRepository.findAllWithFilters(isNull(), isNull(), isNull(), any()))
+                .thenThrow(new IllegalStateException("database down"));
+
+        popular.refresh();
+
+        assertThat(mediaIds(popular.getPopular())).containsExactly(1, 10, 2);
+        verify(mediaRepository, times(2)).findAllWithFilters(null, null, null, top);
+    }
+
+    static PageImpl<Media> page(int... mediaIds) {
+        return new PageImpl<>(Arrays.stream(mediaIds)
+                .mapToObj(id -> Media.builder().mediaId(id).title("Media " + id)
+                        .mediaType(id < 10 ? MediaType.Movie : MediaType.Series).build())
+                .toList());
+    }
+
+    static List<Integer> mediaIds(List<MediaResponse> media) {
+        return media.stream().map(MediaResponse::getMediaId).toList();
+    }
+}
@@ -0,0 +1,118 @@
+package com.group8.Backend.service;
+
+import com.group8.Backend.entity.UserRecommendation;
+import com.group8.Backend.enums.ModelState;
+import com.group8.Backend.repository.UserRecommendationStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class RecommendationBatchServiceTest {
+    static final String USER_PAGE = "SELECT DISTINCT UserID FROM favorites";
+
+    final RecommendationService recommendationService = mock(RecommendationService.class);
+    final UserRecommendationStore store = mock(UserRecommendationStore.class);
+    final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final RecommendationBatchService batch = new RecommendationBatchService(recommendationService, store,
+            jdbcTemplate, meterRegistry);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(batch, "enabled", true);
+        ReflectionTestUtils.setField(batch, "pageSize", 2);
+        ReflectionTestUtils.setField(batch, "parallelism", 2);
+        batch.init();
+    }
+
+    @AfterEach
+    void shutdown() {
+        batch.shutdown();
+    }
+
+    @Test
+    void aRunIsSkippedUnlessTheModelIsReady() throws Exception {
+        for (ModelState state : List.of(ModelState.LOADING, ModelState.FAILED)) {
+            when(recommendationService.getModelState()).thenReturn(state);
+
+            batch.precomputeAll();
+            awaitRun();
+        }
+
+        verifyNoInteractions(jdbcTemplate, store);
+        verify(recommendationService, never()).computeStoredRecommendations(anyInt(), any());
+    }
+
+    @Test
+    void aDisabledBatchNeverRuns() throws Exception {
+        ReflectionTestUtils.setField(batch, "enabled", false);
+        when(recommendationService.getModelState()).thenReturn(ModelState.READY);
+
+        batch.precomputeAll();
+        awaitRun();
+
+        verifyNoInteractions(jdbcTemplate, store);
+    }
+
+    @Test
+    void usersArePagedByIdAndEachPageIsReplacedWithOneTimestamp() throws Exception {
+        when(recommendationService.getModelState()).thenReturn(ModelState.READY);
+        when(jdbcTemplate.queryForList(startsWith(USER_PAGE), eq(Integer.class), eq(Integer.MIN_VALUE), eq(2)))
+                .thenReturn(List.of(1, 2));
+        when(jdbcTemplate.queryForList(startsWith(USER_PAGE), eq(Integer.class), eq(2), eq(2)))
+                .thenReturn(List.of(3));
+        when(jdbcTemplate.queryForList(startsWith(USER_PAGE), eq(Integer.class), eq(3), eq(2)))
+                .thenReturn(List.of());
+        when(recommendationService.computeStoredRecommendations(anyInt(), any())).thenAnswer(invocation -> {
+            int userId = invocation.getArgument(0);
+            if (userId == 2) {
+                throw new IllegalStateException("no favorites");
+            }
+            return List.of(row(userId, invocation.getArgument(1)));
+        });
+
+        batch.precomputeAll();
+        awaitRun();
+
+        ArgumentCaptor<LocalDateTime> computedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(recommendationService).computeStoredRecommendations(eq(1), computedAt.capture());
+        LocalDateTime runAt = computedAt.getValue();
+        // User 2 failed, so its stored rows are left alone rather than deleted
+        verify(store).replace(List.of(1), List.of(row(1, runAt)), runAt);
+        verify(store).replace(List.of(3), List.of(row(3, runAt)), runAt);
+        assertThat(meterRegistry.get("recommendation.batch.failures").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("recommendation.batch.users").gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("recommendation.batch.duration").timer().count()).isEqualTo(1);
+    }
+
+    static UserRecommendation row(int userId, LocalDateTime computedAt) {
+        return UserRecommendation.builder().userId(userId).position(0).mediaId(100 + userId).mode("VOTE")
+                .computedAt(computedAt).build();
+    }
+
+    // Runs after whatever precomputeAll handed to the run thread
+    void awaitRun() throws Exception {
+        ExecutorService runner = (ExecutorService) ReflectionTestUtils.getField(batch, "runner");
+        runner.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,575 @@
+package com.group8.Backend.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.group8.Backend.entity.Favorite;
+import com.group8.Backend.entity.Media;
+import com.group8.Backend.entity.MediaType;
+import com.group8.Backend.entity.SubscriptionPlan;
+import com.group8.Backend.entity.User;
+import com.group8.Backend.enums.ModelState;
+import com.group8.Backend.enums.RecommendationMode;
+import com.group8.Backend.mapper.MediaMapperImpl;
+import com.group8.Backend.recommendation.EmbeddingSnapshot;
+import com.group8.Backend.recommendation.EmbeddingStore;
+import com.group8.Backend.recommendation.ModelVersion;
+import com.group8.Backend.repository.FavoriteRepository;
+import com.group8.Backend.repository.GenreRepository;
+import com.group8.Backend.repository.MediaRepository;
+import com.group8.Backend.repository.UserRecommendationStore;
+import com.group8.Backend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Offline replay of the recommendation pipeline, without MySQL or a Spring context.
+ *
+ * Wires a real {@link RecommendationService} to in-memory stand-ins for its repositories and
+ * {@link JdbcTemplate}, loads the embeddings from a snapshot, replays every user of a favorites
+ * dump once per round and mode, and prints p50/p95/p99 latency, throughput per core, allocation
+ * per request and candidate-pool recall@30 against a second service searching exactly.
+ *
+ * Without {@code --model} a clustered synthetic catalog is generated and written as a snapshot
+ * next to a placeholder model file, so no PyTorch engine is needed. With {@code --model} the
+ * snapshot must sit next to it as {@code <model>.embeddings}, or the model is loaded through DJL.
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/harness.classpath
+ * java -cp target/classes:target/test-classes:$(cat target/harness.classpath) \
+ *     com.group8.Backend.service.RecommendationHarness --index=hnsw --threads=4
+ * </pre>
+ *
+ * Options, all optional:
+ * <ul>
+ *   <li>{@code --model=path} model file with a matching snapshot</li>
+ *   <li>{@code --favorites=path} CSV of {@code userId,mediaId[,addedEpochSeconds]}</li>
+ *   <li>{@code --links=path} CSV of {@code movieId,tmdbId}; without it media ids are MovieLens ids</li>
+ *   <li>{@code --users=2000 --items=20000 --dim=64} synthetic fixture size</li>
+ *   <li>{@code --modes=vote,mean,recent,cofavorite --threads=1 --rounds=3 --warmup-rounds=1}</li>
+ *   <li>{@code --cache=false} replays with the per-user pool cache on when true</li>
+ *   <li>any {@code --recommendation.*=value} overrides that property, e.g. {@code --recommendation.index.type=int8}
+ *       ({@code --index=} is a shorthand)</li>
+ * </ul>
+ */
+public class RecommendationHarness {
+    static final int RECALL_K = 30;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        setLogLevel("ROOT", Level.INFO);
+
+        Fixture fixture = options.containsKey("model")
+                ? Fixture.fromFiles(options)
+                : Fixture.synthetic(intOption(options, "users", 2000), intOption(options, "items", 20000),
+                intOption(options, "dim", 64));
+        System.out.printf("Fixture: %d users, %d favorites, %d media, %d links%n", fixture.favoritesByUser.size(),
+                fixture.favoriteCount(), fixture.media.size(), fixture.links.size());
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put("recommendation.model.path", fixture.modelFile.toString());
+        properties.put("recommendation.cache.enabled", options.getOrDefault("cache", "false"));
+        if (options.containsKey("index")) {
+            properties.put("recommendation.index.type", options.get("index"));
+        }
+        options.forEach((key, value) -> {
+            if (key.startsWith("recommendation.")) {
+                properties.put(key, value);
+            }
+        });
+
+        RecommendationService service = start(fixture, properties);
+        Map<String, String> exactProperties = new HashMap<>(properties);
+        exactProperties.put("recommendation.index.type", "exact");
+        RecommendationService exact = "exact".equalsIgnoreCase(properties.get("recommendation.index.type"))
+                ? null : start(fixture, exactProperties);
+
+        // Per-request INFO logging would dominate the measurement
+        setLogLevel("com.group8.Backend", Level.WARN);
+        int threads = intOption(options, "threads", 1);
+        int rounds = intOption(options, "rounds", 3);
+        int warmupRounds = intOption(options, "warmup-rounds", 1);
+        int[] users = fixture.favoritesByUser.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+
+        System.out.printf("%nIndex %s, %d threads on %d cores, %d users x %d rounds, pool cache %s%n",
+                service.getStatus().getIndexType(), threads, Runtime.getRuntime().availableProcessors(),
+                users.length, rounds, properties.get("recommendation.cache.enabled"));
+        System.out.printf("%-11s %9s %9s %9s %9s %12s %10s %9s %10s%n", "mode", "requests", "p50 ms", "p95 ms",
+                "p99 ms", "req/s/core", "KiB/req", "MB/s", "recall@" + RECALL_K);
+        for (String modeName : options.getOrDefault("modes", "vote,mean,recent,cofavorite").split(",")) {
+            RecommendationMode mode = RecommendationMode.fromName(modeName);
+            if (mode == null) {
+                System.out.printf("%-11s unknown mode%n", modeName);
+                continue;
+            }
+            replay(service, mode, users, threads, warmupRounds);
+            Result result = replay(service, mode, users, threads, rounds);
+            double recall = exact == null ? 1.0 : poolRecall(service, exact, mode, users);
+            System.out.printf("%-11s %9d %9.3f %9.3f %9.3f %12.1f %10.1f %9.1f %10.4f%n", modeName,
+                    result.latencies.length, result.percentile(0.50), result.percentile(0.95),
+                    result.percentile(0.99), result.throughputPerCore(threads),
+                    result.allocatedBytes / 1024.0 / result.latencies.length,
+                    result.allocatedBytes / 1e6 / result.wallSeconds, recall);
+        }
+
+        service.shutdown();
+        if (exact != null) {
+            exact.shutdown();
+        }
+    }
+
+    // Replays every user rounds times on threads workers, each thread measuring its own requests
+    static Result replay(RecommendationService service, RecommendationMode mode, int[] users, int threads,
+                         int rounds) throws InterruptedException {
+        int total = users.length * rounds;
+        long[] latencies = new long[total];
+        AtomicInteger next = new AtomicInteger();
+        long[] allocated = new long[threads];
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        CountDownLatch done = new CountDownLatch(threads);
+        String modeName = mode.name().toLowerCase(Locale.ROOT);
+
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+                int request;
+                while ((request = next.getAndIncrement()) < total) {
+                    long requestStart = System.nanoTime();
+                    service.getRecommendationsForUser(users[request % users.length], modeName, null);
+                    latencies[request] = System.nanoTime() - requestStart;
+                }
+                allocated[worker] = threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                done.countDown();
+            }, "harness-" + t);
+            thread.start();
+        }
+        done.await();
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+        return new Result(latencies, Arrays.stream(allocated).sum(), wallSeconds);
+    }
+
+    // Mean share of the exact search's candidate pool that the configured index also returns
+    static double poolRecall(RecommendationService service, RecommendationService exact, RecommendationMode mode,
+                             int[] users) {
+        ModelVersion version = (ModelVersion) field(service, "version");
+        ModelVersion exactVersion = (ModelVersion) field(exact, "version");
+        double recall = 0;
+        int measured = 0;
+        for (int userId : users) {
+            List<Integer> expected = exact.computePool(exactVersion, userId, mode, null);
+            if (expected.isEmpty()) {
+                continue;
+            }
+            Set<Integer> found = new HashSet<>(service.computePool(version, userId, mode, null));
+            long hits = expected.stream().limit(RECALL_K).filter(found::contains).count();
+            recall += (double) hits / Math.min(RECALL_K, expected.size());
+            measured++;
+        }
+        return measured == 0 ? Double.NaN : recall / measured;
+    }
+
+    // Builds a service on the fixture, runs its startup and waits until the model and neighbour lists are ready
+    static RecommendationService start(Fixture fixture, Map<String, String> properties) throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PlatformTransactionManager transactionManager = new NoTransactionManager();
+        MediaMapperImpl mediaMapper = new MediaMapperImpl();
+        MediaRepository mediaRepository = fixture.mediaRepository();
+        UserRepository userRepository = fixture.userRepository();
+
+        PopularMediaService popularMediaService = new PopularMediaService(mediaRepository,
+                stub(GenreRepository.class, Map.of("findAll", methodArgs -> List.of())), mediaMapper,
+                transactionManager, meterRegistry);
+        applyValues(popularMediaService, properties);
+        popularMediaService.init();
+
+        // The batch table stays unused unless recommendation.batch.enabled is overridden
+        FixtureJdbcTemplate jdbcTemplate = new FixtureJdbcTemplate(fixture);
+        RecommendationService service = new RecommendationService(fixture.favoriteRepository(), mediaRepository,
+                mediaMapper, jdbcTemplate, meterRegistry, transactionManager, popularMediaService, userRepository,
+                new UserService(userRepository, null, null, null, null), new UserRecommendationStore(jdbcTemplate));
+        applyValues(service, properties);
+        service.init();
+
+        while (service.getModelState() == ModelState.LOADING
+                || (service.getModelState() == ModelState.READY && !service.getStatus().isPrecomputeComplete()
+                && !"false".equals(properties.get("recommendation.precompute.enabled")))) {
+            Thread.sleep(100);
+        }
+        if (service.getModelState() != ModelState.READY) {
+            throw new IllegalStateException("The recommendation model failed to load from " + fixture.modelFile);
+        }
+        return service;
+    }
+
+    // Sets every @Value field to the override in properties or the default in its placeholder
+    static void applyValues(Object target, Map<String, String> properties) {
+        ReflectionUtils.doWithFields(target.getClass(), field -> {
+            String placeholder = field.getAnnotation(Value.class).value();
+            String body = placeholder.substring(2, placeholder.length() - 1);
+            int separator = body.indexOf(':');
+            String key = separator < 0 ? body : body.substring(0, separator);
+            String value = properties.getOrDefault(key, separator < 0 ? null : body.substring(separator + 1));
+            ReflectionUtils.makeAccessible(field);
+            field.set(target, ApplicationConversionService.getSharedInstance().convert(value, field.getType()));
+        }, field -> field.isAnnotationPresent(Value.class));
+    }
+
+    static Object field(Object target, String name) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        return ReflectionUtils.getField(field, target);
+    }
+
+    // Interface stand-in answering the named methods; anything else fails loudly
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, methodArgs) -> {
+            Function<Object[], Object> handler = methods.get(method.getName());
+            if (handler != null) {
+                return handler.apply(methodArgs);
+            }
+            return switch (method.getName()) {
+                case "toString" -> type.getSimpleName() + " stand-in";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == methodArgs[0];
+                default -> throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            };
+        });
+    }
+
+    static void setLogLevel(String logger, Level level) {
+        ((Logger) LoggerFactory.getLogger(logger)).setLevel(level);
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(separator < 0 ? arg.substring(2) : arg.substring(2, separator),
+                    separator < 0 ? "true" : arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    static int intOption(Map<String, String> options, String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    static final class Result {
+        final long[] latencies;
+        final long allocatedBytes;
+        final double wallSeconds;
+
+        Result(long[] latencies, long allocatedBytes, double wallSeconds) {
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+            this.allocatedBytes = allocatedBytes;
+            this.wallSeconds = wallSeconds;
+        }
+
+        double percentile(double fraction) {
+            int index = (int) Math.ceil(fraction * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+        }
+
+        double throughputPerCore(int threads) {
+            return latencies.length / wallSeconds / Math.min(threads, Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Catalog, links and favorites held in memory, plus the stand-ins that serve them.
+     */
+    static final class Fixture {
+        Path modelFile;
+        // MovieLens id to media (TMDB) id
+        final Map<Integer, Integer> links = new LinkedHashMap<>();
+        final Map<Integer, Media> media = new HashMap<>();
+        final Map<Integer, List<Favorite>> favoritesByUser = new HashMap<>();
+        // Plans of users who do not hold the default VIP plan
+        final Map<Integer, SubscriptionPlan> plans = new HashMap<>();
+
+        /**
+         * Items in clusters of nearby vectors, users favoriting a few clusters, so neighbour
+         * searches and profiles have structure to find.
+         */
+        static Fixture synthetic(int users, int items, int dimension) throws IOException {
+            Random random = new Random(42);
+            int clusters = Math.max(1, items / 100);
+            float[][] centers = new float[clusters][dimension];
+            for (float[] center : centers) {
+                for (int i = 0; i < dimension; i++) {
+                    center[i] = (float) random.nextGaussian();
+                }
+            }
+            Map<Integer, float[]> embeddings = new HashMap<>(items * 2);
+            Fixture fixture = new Fixture();
+            for (int item = 0; item < items; item++) {
+                int movieId = item + 1;
+                float[] center = centers[item % clusters];
+                float[] vector = new float[dimension];
+                for (int i = 0; i < dimension; i++) {
+                    vector[i] = center[i] + 0.5f * (float) random.nextGaussian();
+                }
+                embeddings.put(movieId, vector);
+                // Offset media ids, as TMDB ids differ from MovieLens ids
+                fixture.addMedia(movieId, movieId + 100_000);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            for (int userId = 1; userId <= users; userId++) {
+                int favorites = 5 + random.nextInt(26);
+                int[] tastes = { random.nextInt(clusters), random.nextInt(clusters), random.nextInt(clusters) };
+                Set<Integer> chosen = new LinkedHashSet<>();
+                while (chosen.size() < Math.min(favorites, items)) {
+                    int cluster = tastes[random.nextInt(tastes.length)];
+                    int item = cluster + clusters * random.nextInt(Math.max(1, items / clusters));
+                    chosen.add(Math.min(item, items - 1) + 1 + 100_000);
+                }
+                for (int mediaId : chosen) {
+                    fixture.addFavorite(userId, mediaId, now.minusDays(random.nextInt(365)));
+                }
+            }
+
+            Path directory = Files.createTempDirectory("recommendation-harness");
+            directory.toFile().deleteOnExit();
+            fixture.modelFile = directory.resolve("gcn_model_fixture.pt");
+            byte[] placeholder = new byte[1024];
+            random.nextBytes(placeholder);
+            Files.write(fixture.modelFile, placeholder);
+            Path snapshot = Paths.get(fixture.modelFile + ".embeddings");
+            EmbeddingSnapshot.write(snapshot, EmbeddingSnapshot.checksum(fixture.modelFile), EmbeddingStore.from(embeddings));
+            fixture.modelFile.toFile().deleteOnExit();
+            snapshot.toFile().deleteOnExit();
+            return fixture;
+        }
+
+        static Fixture fromFiles(Map<String, String> options) throws IOException {
+            Fixture fixture = new Fixture();
+            fixture.modelFile = Paths.get(options.get("model")).toAbsolutePath();
+            if (options.containsKey("links")) {
+                for (String[] row : readCsv(Paths.get(options.get("links")))) {
+                    fixture.addMedia(Integer.parseInt(row[0]), Integer.parseInt(row[1]));
+                }
+            } else {
+                EmbeddingStore store = EmbeddingSnapshot.load(Paths.get(fixture.modelFile + ".embeddings"),
+                        EmbeddingSnapshot.checksum(fixture.modelFile));
+                if (store == null) {
+                    throw new IllegalArgumentException("--links is required without a snapshot for " + fixture.modelFile);
+                }
+                for (int row = 0; row < store.size(); row++) {
+                    fixture.addMedia(store.idAt(row), store.idAt(row));
+                }
+            }
+            if (!options.containsKey("favorites")) {
+                throw new IllegalArgumentException("--favorites is required with --model");
+            }
+            for (String[] row : readCsv(Paths.get(options.get("favorites")))) {
+                LocalDateTime added = row.length > 2
+                        ? LocalDateTime.ofInstant(Instant.ofEpochSecond(Long.parseLong(row[2])), ZoneOffset.UTC)
+                        : null;
+                fixture.addFavorite(Integer.parseInt(row[0]), Integer.parseInt(row[1]), added);
+            }
+            return fixture;
+        }
+
+        // Skips blank lines and a header row
+        static List<String[]> readCsv(Path file) throws IOException {
+            List<String[]> rows = new ArrayList<>();
+            for (String line : Files.readAllLines(file)) {
+                String[] row = line.trim().split("\\s*,\\s*");
+                if (!line.isBlank() && Character.isDigit(row[0].charAt(0))) {
+                    rows.add(row);
+                }
+            }
+            return rows;
+        }
+
+        void addMedia(int movieId, int mediaId) {
+            links.putIfAbsent(movieId, mediaId);
+            String[] levels = { "FREE", "PREMIUM", "VIP" };
+            media.computeIfAbsent(mediaId, id -> Media.builder()
+                    .mediaId(id)
+                    .title("Media " + id)
+                    .accessLevel(levels[Math.floorMod(id, levels.length)])
+                    .mediaType(id % 5 == 0 ? MediaType.Series : MediaType.Movie)
+                    .viewCount(Math.floorMod(id * 31, 1000))
+                    .build());
+        }
+
+        void addFavorite(int userId, int mediaId, LocalDateTime addedDate) {
+            favoritesByUser.computeIfAbsent(userId, id -> new ArrayList<>())
+                    .add(Favorite.builder().userId(userId).mediaId(mediaId).addedDate(addedDate).build());
+        }
+
+        long favoriteCount() {
+            return favoritesByUser.values().stream().mapToLong(List::size).sum();
+        }
+
+        FavoriteRepository favoriteRepository() {
+            return stub(FavoriteRepository.class, Map.of(
+                    "findByUserId", methodArgs -> favoritesByUser.getOrDefault((Integer) methodArgs[0], List.of()),
+                    "findMediaIdsByUserId", methodArgs -> favoritesByUser.getOrDefault((Integer) methodArgs[0], List.of())
+                            .stream().map(Favorite::getMediaId).toList()));
+        }
+
+        MediaRepository mediaRepository() {
+            List<Media> byViews = media.values().stream()
+                    .sorted(Comparator.comparing(Media::getViewCount).reversed())
+                    .limit(100)
+                    .toList();
+            return stub(MediaRepository.class, Map.of(
+                    "findAllById", methodArgs -> {
+                        List<Media> found = new ArrayList<>();
+                        for (Object id : (Iterable<?>) methodArgs[0]) {
+                            Media item = media.get((Integer) id);
+                            if (item != null) {
+                                found.add(item);
+                            }
+                        }
+                        return found;
+                    },
+                    "existsById", methodArgs -> media.containsKey((Integer) methodArgs[0]),
+                    "findAllWithFilters", methodArgs -> new PageImpl<>(byViews)));
+        }
+
+        // Users hold a current VIP plan unless plans says otherwise, so access filtering keeps the whole catalog
+        UserRepository userRepository() {
+            return stub(UserRepository.class, Map.of("findById", methodArgs -> Optional.of(User.builder()
+                    .userID((Integer) methodArgs[0])
+                    .subscriptionPlan(plans.getOrDefault((Integer) methodArgs[0], SubscriptionPlan.VIP))
+                    .subscriptionExpiry(LocalDate.now().plusYears(1))
+                    .build())));
+        }
+    }
+
+    /**
+     * Answers the statements RecommendationService issues from the fixture.
+     */
+    static final class FixtureJdbcTemplate extends JdbcTemplate {
+        final Fixture fixture;
+
+        FixtureJdbcTemplate(Fixture fixture) {
+            this.fixture = fixture;
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler handler) {
+            for (Object[] row : rows(sql)) {
+                try {
+                    handler.processRow(resultSet(row));
+                } catch (java.sql.SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            if (sql.startsWith("SELECT COUNT(*) FROM movielens_links")) {
+                return requiredType.cast(fixture.links.size());
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        public <T> List<T> queryForList(String sql, Class<T> elementType) {
+            if (sql.startsWith("SELECT DISTINCT movieId FROM movielens_links")) {
+                return fixture.links.keySet().stream().sorted().map(elementType::cast).toList();
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            if (sql.startsWith("SELECT movieId FROM movielens_links WHERE tmdbId = ?")) {
+                return fixture.links.entrySet().stream()
+                        .filter(link -> link.getValue().equals(args[0]))
+                        .map(link -> elementType.cast(link.getKey()))
+                        .sorted()
+                        .limit(1)
+                        .toList();
+            }
+            return args.length == 0 ? queryForList(sql, elementType) : unsupported(sql);
+        }
+
+        private List<Object[]> rows(String sql) {
+            List<Object[]> rows = new ArrayList<>();
+            if (sql.startsWith("SELECT movieId, tmdbId FROM movielens_links")) {
+                fixture.links.entrySet().stream()
+                        .sorted(Map.Entry.comparingByKey())
+                        .forEach(link -> rows.add(new Object[] { link.getKey(), link.getValue() }));
+            } else if (sql.startsWith("SELECT MediaID, AccessLevel, MediaType FROM Media")) {
+                fixture.media.values().forEach(item -> rows.add(new Object[] {
+                        item.getMediaId(), item.getAccessLevel(), item.getMediaType().name() }));
+            } else if (sql.startsWith("SELECT UserID, MediaID FROM favorites")) {
+                fixture.favoritesByUser.entrySet().stream()
+                        .sorted(Map.Entry.comparingByKey())
+                        .forEach(user -> user.getValue().forEach(
+                                favorite -> rows.add(new Object[] { user.getKey(), favorite.getMediaId() })));
+            } else {
+                throw new UnsupportedOperationException(sql);
+            }
+            return rows;
+        }
+
+        private static <T> T unsupported(String sql) {
+            throw new UnsupportedOperationException(sql);
+        }
+
+        private static ResultSet resultSet(Object[] row) {
+            return stub(ResultSet.class, Map.of(
+                    "getInt", methodArgs -> ((Number) row[(Integer) methodArgs[0] - 1]).intValue(),
+                    "getLong", methodArgs -> ((Number) row[(Integer) methodArgs[0] - 1]).longValue(),
+                    "getString", methodArgs -> row[(Integer) methodArgs[0] - 1] == null
+                            ? null : row[(Integer) methodArgs[0] - 1].toString()));
+        }
+    }
+
+    static final class NoTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.group8.Backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.group8.Backend.dto.response.MediaResponse;
+import com.group8.Backend.entity.Favorite;
+import com.group8.Backend.entity.Media;
+import com.group8.Backend.entity.MediaType;
+import com.group8.Backend.entity.SubscriptionPlan;
+import com.group8.Backend.entity.UserRecommendation;
+import com.group8.Backend.enums.RecommendationMode;
+import com.group8.Backend.exception.AppException;
+import com.group8.Backend.exception.ErrorCode;
+import com.group8.Backend.recommendation.CatalogAttributes;
+import com.group8.Backend.recommendation.ModelVersion;
+import com.group8.Backend.recommendation.MovieLensLinks;
+import com.group8.Backend.recommendation.VectorMath;
+import com.group8.Backend.repository.UserRecommendationStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A real {@link RecommendationService} on the harness fixture: a small clustered catalog loaded
+ * from a snapshot, with in-memory stand-ins for the repositories.
+ */
+class RecommendationServiceTest {
+    // A viewer on the Free plan and a title with no MovieLens link
+    static final int FREE_USER = 10_001;
+    static final int UNLINKED_MEDIA = 999_999;
+    // A user whose favorites are movies 1 and 7, added a month ago, and movie 2, added just now
+    static final int PROFILE_USER = 10_002;
+    static final int NEWEST_FAVORITE = 2;
+
+    static RecommendationHarness.Fixture fixture;
+
+    final List<RecommendationService> started = new ArrayList<>();
+
+    @BeforeAll
+    static void createFixture() throws Exception {
+        fixture = RecommendationHarness.Fixture.synthetic(60, 600, 16);
+        fixture.plans.put(FREE_USER, SubscriptionPlan.Free);
+        fixture.media.put(UNLINKED_MEDIA, Media.builder().mediaId(UNLINKED_MEDIA).title("Unlinked")
+                .accessLevel("FREE").mediaType(MediaType.Movie).viewCount(0).build());
+        LocalDateTime now = LocalDateTime.now();
+        fixture.addFavorite(PROFILE_USER, fixture.links.get(1), now.minusDays(30));
+        fixture.addFavorite(PROFILE_USER, fixture.links.get(7), now.minusDays(31));
+        fixture.addFavorite(PROFILE_USER, fixture.links.get(NEWEST_FAVORITE), now);
+    }
+
+    @AfterEach
+    void shutdown() {
+        started.forEach(RecommendationService::shutdown);
+    }
+
+    @Test
+    void voteModeLeavesCoFavoritesOutByDefault() throws Exception {
+        RecommendationService defaults = start(Map.of());
+        RecommendationService withoutIndex = start(Map.of("recommendation.cofavorite.enabled", "false"));
+        RecommendationService blended = start(Map.of("recommendation.cofavorite.weight", "1.0"));
+        assertThat((Object) field(defaults, "coFavorites")).isNotNull();
+
+        boolean blendChangesAPool = false;
+        for (int userId : fixture.favoritesByUser.keySet()) {
+            List<Integer> pool = pool(defaults, userId, RecommendationMode.VOTE);
+            assertThat(pool).isEqualTo(pool(withoutIndex, userId, RecommendationMode.VOTE));
+            blendChangesAPool |= !pool.equals(pool(blended, userId, RecommendationMode.VOTE));
+        }
+        assertThat(blendChangesAPool).isTrue();
+    }
+
+    @Test
+    void aUsersPoolIsScoredOnceAndOnlyTheirPoolIsDroppedWhenTheirFavoritesChange() throws Exception {
+        RecommendationService service = start(Map.of("recommendation.cache.enabled", "true"));
+        Cache<Long, List<Integer>> pools = field(service, "userCandidatePools");
+        List<Integer> users = fixture.favoritesByUser.keySet().stream().sorted().limit(2).toList();
+        int userId = users.get(0);
+        int otherUserId = users.get(1);
+        service.getRecommendationsForUser(otherUserId, "vote", null);
+        service.getRecommendationsForUser(userId, "vote", null);
+        List<Integer> pool = pools.asMap().entrySet().stream()
+                .filter(entry -> (entry.getKey() >>> 16) == userId)
+                .map(Map.Entry::getValue).findFirst().orElseThrow();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(mediaIds(service.getRecommendationsForUser(userId, "vote", null)))
+                    .hasSize(10).doesNotHaveDuplicates().allMatch(pool::contains);
+        }
+        assertThat(requestCount(service, "cached")).isEqualTo(3);
+        assertThat(requestCount(service, "computed")).isEqualTo(2);
+
+        service.onFavoriteChanged(userId, pool.get(0), true, List.of());
+
+        assertThat(pools.asMap().keySet()).allMatch(key -> (key >>> 16) == otherUserId).hasSize(1);
+        service.getRecommendationsForUser(userId, "vote", null);
+        assertThat(requestCount(service, "computed")).isEqualTo(3);
+    }
+
+    static long requestCount(RecommendationService service, String poolSource) {
+        MeterRegistry meterRegistry = field(service, "meterRegistry");
+        return meterRegistry.get("recommendation.request").tags("mode", "vote", "pool", poolSource).timer().count();
+    }
+
+    @Test
+    void profileModesRunOneSearchForTheMeanOfTheFavorites() throws Exception {
+        // Favorites a month old weigh 2^-720 against the newest under a one-hour half-life, which is 0 as a float
+        RecommendationService service = start(Map.of("recommendation.index.type", "exact",
+                "recommendation.profile.half-life", "1h"));
+        ModelVersion version = field(service, "version");
+        float[] mean = new float[version.store().dimension()];
+        for (int movieId : List.of(1, 7, NEWEST_FAVORITE)) {
+            float[] vector = version.index().vector(movieId);
+            for (int i = 0; i < mean.length; i++) {
+                mean[i] += vector[i];
+            }
+        }
+        VectorMath.normalize(mean, 0, mean.length);
+
+        List<Integer> meanPool = pool(service, PROFILE_USER, RecommendationMode.MEAN);
+
+        assertThat(meanPool).isEqualTo(profilePool(version, mean));
+        assertThat(pool(service, PROFILE_USER, RecommendationMode.RECENT))
+                .isEqualTo(profilePool(version, version.index().vector(NEWEST_FAVORITE)))
+                .isNotEqualTo(meanPool);
+        assertThat(neighbourLookups(service, "profile")).isEqualTo(2);
+        assertThat(neighbourLookups(service, "precomputed") + neighbourLookups(service, "computed")).isZero();
+        assertThatThrownBy(() -> service.getRecommendationsForUser(PROFILE_USER, "median", null))
+                .isInstanceOfSatisfying(AppException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.INVALID_RECOMMENDATION_MODE));
+    }
+
+    // The nearest titles to profile, leaving out the profile user's favorites
+    static List<Integer> profilePool(ModelVersion version, float[] profile) {
+        List<Integer> favorites = fixture.favoritesByUser.get(PROFILE_USER).stream().map(Favorite::getMediaId).toList();
+        return Arrays.stream(version.index().search(profile, RecommendationService.CANDIDATE_POOL_SIZE
+                        + favorites.size(), MovieLensLinks.NO_ID, null))
+                .mapToObj(fixture.links::get)
+                .filter(mediaId -> !favorites.contains(mediaId))
+                .limit(RecommendationService.CANDIDATE_POOL_SIZE)
+                .toList();
+    }
+
+    static long neighbourLookups(RecommendationService service, String source) {
+        MeterRegistry meterRegistry = field(service, "meterRegistry");
+        return meterRegistry.get("recommendation.neighbours").tag("source", source).timer().count();
+    }
+
+    @Test
+    void asyncRequestsFallBackToPopularTitlesWhenLateOrRejected() throws Exception {
+        RecommendationService service = start(Map.of("recommendation.async.threads", "1",
+                "recommendation.async.queue-capacity", "1", "recommendation.async.deadline", "200ms"));
+        PopularMediaService popularMediaService = field(service, "popularMediaService");
+        List<Integer> popular = mediaIds(popularMediaService.getPopular());
+        assertThat(popular).isNotEmpty();
+        int userId = firstUser();
+
+        assertThat(mediaIds(service.getRecommendationsForUserAsync(userId, "vote", null).get(10, TimeUnit.SECONDS)))
+                .hasSize(10).isNotEqualTo(popular);
+        assertThat(fallbacks(service, "deadline") + fallbacks(service, "rejected")).isZero();
+
+        // Occupy the only worker, so the next request waits in the queue and the one after is turned away
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService requests = field(service, "requestExecutor");
+        requests.execute(() -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            CompletableFuture<List<MediaResponse>> late = service.getRecommendationsForUserAsync(userId, "vote", null);
+            CompletableFuture<List<MediaResponse>> rejected = service.getRecommendationsForUserAsync(userId, "mean", null);
+
+            assertThat(mediaIds(rejected.get(10, TimeUnit.SECONDS))).isEqualTo(popular);
+            assertThat(mediaIds(late.get(10, TimeUnit.SECONDS))).isEqualTo(popular);
+            assertThat(fallbacks(service, "rejected")).isEqualTo(1);
+            assertThat(fallbacks(service, "deadline")).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+
+        assertThatThrownBy(() -> service.getRecommendationsForUserAsync(userId, "median", null))
+                .isInstanceOfSatisfying(AppException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.INVALID_RECOMMENDATION_MODE));
+    }
+
+    static double fallbacks(RecommendationService service, String reason) {
+        MeterRegistry meterRegistry = field(service, "meterRegistry");
+        Counter counter = meterRegistry.find("recommendation.fallbacks").tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    void aFreeUserGetsFullPoolsOfFreeTitlesUntilTheirPlanChanges() throws Exception {
+        RecommendationService service = start(Map.of("recommendation.cache.enabled", "true"));
+        // Clusters share an access level, so pick a user whose unfiltered pool holds paid titles
+        int userId = fixture.favoritesByUser.keySet().stream().sorted()
+                .filter(user -> pool(service, user, RecommendationMode.VOTE).stream()
+                        .anyMatch(mediaId -> !"FREE".equals(fixture.media.get(mediaId).getAccessLevel())))
+                .findFirst().orElseThrow();
+        fixture.plans.put(userId, SubscriptionPlan.Free);
+        try {
+            Cache<Integer, Integer> accessMasks = field(service, "userAccessMasks");
+            Cache<Long, List<Integer>> pools = field(service, "userCandidatePools");
+
+            for (String mode : List.of("vote", "mean")) {
+                assertThat(service.getRecommendationsForUser(userId, mode, null))
+                        .hasSize(10).allMatch(media -> "FREE".equals(media.getAccessLevel()));
+            }
+            assertThat(service.getRecommendationsForUser(userId, "vote", MediaType.Series)).isNotEmpty()
+                    .allMatch(media -> "FREE".equals(media.getAccessLevel()) && media.getMediaType() == MediaType.Series);
+            // Ineligible titles are skipped inside the search, so every pool is still full
+            assertThat(pools.asMap().values()).hasSize(3).allSatisfy(pool -> assertThat(pool)
+                    .hasSize(RecommendationService.CANDIDATE_POOL_SIZE)
+                    .allMatch(mediaId -> "FREE".equals(fixture.media.get(mediaId).getAccessLevel())));
+            assertThat(accessMasks.asMap()).containsOnlyKeys(userId);
+
+            // An upgrade is only seen once the subscription change is reported
+            fixture.plans.put(userId, SubscriptionPlan.VIP);
+            assertThat(service.getRecommendationsForUser(userId, "vote", null))
+                    .allMatch(media -> "FREE".equals(media.getAccessLevel()));
+
+            service.onSubscriptionChanged(userId);
+
+            assertThat(pools.asMap()).isEmpty();
+            service.getRecommendationsForUser(userId, "vote", null);
+            assertThat(pools.asMap().values()).singleElement().satisfies(pool -> assertThat(pool)
+                    .anyMatch(mediaId -> !"FREE".equals(fixture.media.get(mediaId).getAccessLevel())));
+        } finally {
+            fixture.plans.remove(userId);
+        }
+    }
+
+    @Test
+    void everyStageIsTimedAndTheRequestTimersExistBeforeTheFirstRequest() throws Exception {
+        RecommendationService service = start(Map.of("recommendation.cache.enabled", "true"));
+        MeterRegistry meterRegistry = field(service, "meterRegistry");
+        for (RecommendationMode mode : RecommendationMode.values()) {
+            for (String poolSource : List.of("cached", "stored", "computed")) {
+                assertThat(meterRegistry.get("recommendation.request")
+                        .tags("mode", mode.name().toLowerCase(Locale.ROOT), "pool", poolSource).timer().count()).isZero();
+            }
+        }
+        for (String cache : List.of("recommendation.embeddings", "recommendation.similar-movies",
+                "recommendation.user-candidates")) {
+            assertThat(meterRegistry.find("cache.size").tag("cache", cache).gauge()).isNotNull();
+        }
+        assertThat(meterRegistry.find("recommendation.singleflight.coalesced").functionCounters()).hasSize(2);
+
+        service.getRecommendationsForUser(firstUser(), "vote", null);
+        service.getRecommendationsForUser(FREE_USER, "vote", null);
+
+        for (String stage : List.of("favorites", "translation", "scoring", "hydration", "mapping")) {
+            assertThat(meterRegistry.get("recommendation.stage").tag("stage", stage).timer().count())
+                    .as(stage).isPositive();
+        }
+        assertThat(neighbourLookups(service, "precomputed")).isPositive();
+        assertThat(requestCount(service, "computed")).isEqualTo(1);
+        // The user without favorites gets popular titles instead of a scored pool
+        assertThat(fallbacks(service, "no-candidates")).isEqualTo(1);
+    }
+
+    @Test
+    void aMediaEditOnlyDropsCachedPoolsWhenItsAccessLevelOrTypeChanges() throws Exception {
+        RecommendationService service = start(Map.of("recommendation.cache.enabled", "true"));
+        Cache<Long, List<Integer>> pools = field(service, "userCandidatePools");
+        ModelVersion version = field(service, "version");
+        service.getRecommendationsForUser(firstUser(), "vote", null);
+        assertThat(pools.asMap()).hasSize(1);
+        CatalogAttributes before = version.attributes();
+        Media media = fixture.media.get(fixture.links.get(1));
+
+        service.onMediaChanged(media.getMediaId(), media.getAccessLevel(), media.getMediaType());
+        awaitMaintenance(service);
+
+        assertThat(version.attributes()).isSameAs(before);
+        assertThat(pools.asMap()).hasSize(1);
+
+        String level = "VIP".equals(media.getAccessLevel()) ? "FREE" : "VIP";
+        service.onMediaChanged(media.getMediaId(), level, media.getMediaType());
+        awaitMaintenance(service);
+
+        assertThat(version.attributes().mediaAttributes(media.getMediaId()))
+                .containsExactly(level, media.getMediaType().name());
+        assertThat(version.attributes().filter(Set.of(level), null).accepts(1)).isTrue();
+        assertThat(pools.asMap()).isEmpty();
+    }
+
+    @Test
+    void similarMediaFollowsTheEmbeddingRankingWithoutTheTitleItself() throws Exception {
+        RecommendationService service = start(Map.of("recommendation.index.type", "exact"));
+        ModelVersion version = field(service, "version");
+        int mediaId = fixture.links.get(1);
+        List<Integer> expected = new ArrayList<>();
+        for (int movieId : version.store().neighbours(1, 20)) {
+            expected.add(fixture.links.get(movieId));
+        }
+
+        List<Integer> similar = mediaIds(service.getSimilarMedia(mediaId, 10, null));
+
+        assertThat(similar).isEqualTo(expected.subList(0, 10)).doesNotContain(mediaId);
+        assertThat(mediaIds(service.getSimilarMedia(mediaId, 3, null))).isEqualTo(expected.subList(0, 3));
+    }
+
+    @Test
+    void similarMediaOnlyListsTitlesTheViewerCanPlay() throws Exception {
+        RecommendationService service = start(Map.of());
+        int mediaId = fixture.links.get(1);
+
+        List<MediaResponse> forFreeUser = service.getSimilarMedia(mediaId, 10, FREE_USER);
+
+        assertThat(forFreeUser).hasSize(10).allMatch(media -> "FREE".equals(media.getAccessLevel()));
+        assertThat(service.getSimilarMedia(mediaId, 10, null))
+                .anyMatch(media -> !"FREE".equals(media.getAccessLevel()));
+    }
+
+    @Test
+    void similarMediaTellsUnknownTitlesFromUnlinkedOnesAndTimesBoth() throws Exception {
+        RecommendationService service = start(Map.of());
+        MeterRegistry meterRegistry = field(service, "meterRegistry");
+
+        assertThatThrownBy(() -> service.getSimilarMedia(42, 10, null))
+                .isInstanceOfSatisfying(AppException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.MEDIA_NOT_FOUND));
+        assertThat(service.getSimilarMedia(UNLINKED_MEDIA, 10, null)).isEmpty();
+
+        assertThat(meterRegistry.get("recommendation.similar-media").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void aDisabledCacheIsNeitherReadNorFilledWithSampleData() throws Exception {
+        RecommendationService service = start(Map.of("recommendation.index.type", "exact",
+                "recommendation.precompute.enabled", "false"));
+        Cache<Integer, List<Integer>> similarMovies = field(service, "similarMoviesCache");
+        int mediaId = fixture.links.get(1);
+        List<Integer> computed = mediaIds(service.getSimilarMedia(mediaId, 10, null));
+        assertThat(similarMovies.asMap()).isEmpty();
+
+        similarMovies.put(1, List.of(2, 3, 4));
+
+        assertThat(mediaIds(service.getSimilarMedia(mediaId, 10, null))).isEqualTo(computed);
+
+        similarMovies.invalidateAll();
+        ReflectionTestUtils.invokeMethod(service, "populateSampleData");
+
+        assertThat(similarMovies.asMap()).isEmpty();
+    }
+
+    @Test
+    void aStoredPoolIsOnlyServedInItsModeAndAccessWhileFresh() throws Exception {
+        RecommendationService service = start(Map.of("recommendation.batch.enabled", "true"));
+        UserRecommendationStore store = mock(UserRecommendationStore.class);
+        ReflectionTestUtils.setField(service, "userRecommendationStore", store);
+        int userId = firstUser();
+        int accessMask = ReflectionTestUtils.invokeMethod(service, "accessMask", userId);
+        LocalDateTime now = LocalDateTime.now();
+
+        when(store.findByUserId(userId)).thenReturn(stored(userId, "VOTE", accessMask, now.minusHours(1)));
+        assertThat(storedPool(service, userId, RecommendationMode.VOTE, accessMask)).containsExactly(100_001, 100_002);
+        assertThat(storedPool(service, userId, RecommendationMode.MEAN, accessMask)).isNull();
+        assertThat(storedPool(service, userId, RecommendationMode.VOTE, accessMask & 1)).isNull();
+        assertThat(service.getRecommendationsForUser(userId, "vote", null))
+                .extracting(MediaResponse::getMediaId).containsExactlyInAnyOrder(100_001, 100_002);
+
+        // The default recommendation.batch.max-age is 36 hours
+        when(store.findByUserId(userId)).thenReturn(stored(userId, "VOTE", accessMask, now.minusHours(37)));
+        assertThat(storedPool(service, userId, RecommendationMode.VOTE, accessMask)).isNull();
+
+        when(store.findByUserId(userId)).thenReturn(List.of());
+        assertThat(storedPool(service, userId, RecommendationMode.VOTE, accessMask)).isNull();
+
+        when(store.findByUserId(userId)).thenThrow(new QueryTimeoutException("slow"));
+        assertThat(storedPool(service, userId, RecommendationMode.VOTE, accessMask)).isNull();
+    }
+
+    static List<Integer> storedPool(RecommendationService service, int userId, RecommendationMode mode, int accessMask) {
+        return ReflectionTestUtils.invokeMethod(service, "storedPool", userId, mode, accessMask);
+    }
+
+    static List<UserRecommendation> stored(int userId, String mode, int accessMask, LocalDateTime computedAt) {
+        return List.of(100_001, 100_002).stream()
+                .map(mediaId -> UserRecommendation.builder().userId(userId).position(mediaId - 100_001)
+                        .mediaId(mediaId).mode(mode).accessMask(accessMask).computedAt(computedAt).build())
+                .toList();
+    }
+
+    static List<Integer> mediaIds(List<MediaResponse> media) {
+        return media.stream().map(MediaResponse::getMediaId).toList();
+    }
+
+    static int firstUser() {
+        return fixture.favoritesByUser.keySet().stream().mapToInt(Integer::intValue).min().orElseThrow();
+    }
+
+    // Runs after whatever the maintenance thread was given before
+    static void awaitMaintenance(RecommendationService service) throws Exception {
+        ExecutorService maintenance = field(service, "backgroundExecutor");
+        maintenance.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T field(RecommendationService service, String name) {
+        return (T) RecommendationHarness.field(service, name);
+    }
+
+    static List<Integer> pool(RecommendationService service, int userId, RecommendationMode mode) {
+        return service.computePool(field(service, "version"), userId, mode, null);
+    }
+
+    // The co-favorite index is built on the loading thread before the model, so it is ready with it
+    RecommendationService start(Map<String, String> overrides) throws InterruptedException {
+        Map<String, String> properties = new HashMap<>(overrides);
+        properties.put("recommendation.model.path", fixture.modelFile.toString());
+        properties.putIfAbsent("recommendation.cache.enabled", "false");
+        RecommendationService service = RecommendationHarness.start(fixture, properties);
+        started.add(service);
+        return service;
+    }
+}
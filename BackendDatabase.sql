@@ -1 +1,14 @@
-
+-- Recommendation tables and columns for databases not managed by spring.jpa.hibernate.ddl-auto=update.
+-- Matches the User and UserRecommendation entities; safe to run once on an existing schema.
+
+ALTER TABLE Users ADD COLUMN FavoritesChangedAt DATETIME(6) NULL;
+
+CREATE TABLE IF NOT EXISTS user_recommendations (
+    UserID     INT         NOT NULL,
+    Position   INT         NOT NULL,
+    MediaID    INT         NOT NULL,
+    Mode       VARCHAR(20) NOT NULL,
+    AccessMask INT         NOT NULL,
+    ComputedAt DATETIME(6) NOT NULL,
+    PRIMARY KEY (UserID, Position)
+);